@@ -0,0 +1,126 @@
+package com.example.networkmonitor;
+
+import android.app.usage.NetworkStats;
+import android.app.usage.NetworkStatsManager;
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 各应用在最近一段时间内的流量汇总，按UID聚合。
+ * 在后台线程用NetworkStatsManager.querySummary批量查询WiFi和蜂窝数据，结果在进程内缓存一段时间，
+ * 再次打开应用列表时直接使用缓存。
+ */
+public class AppUsageCache {
+    public static final int PERIOD_HOUR = 0; // 由2小时桶按比例折算，是估算值
+    public static final int PERIOD_DAY = 1;
+    public static final int PERIOD_MONTH = 2;
+    private static final long[] PERIOD_MILLIS = {
+            60 * 60 * 1000L,
+            24 * 60 * 60 * 1000L,
+            30 * 24 * 60 * 60 * 1000L
+    };
+    private static final long CACHE_TTL = 5 * 60 * 1000; // 缓存有效期5分钟
+    private static final int EXPECTED_UIDS = 256;
+
+    public interface Callback {
+        /** 在主线程回调，查询失败时usage为null */
+        void onUsageLoaded(int period, UidUsageMap usage);
+    }
+
+    private static AppUsageCache instance;
+
+    private final NetworkStatsManager networkStatsManager;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final UidUsageMap[] cached = new UidUsageMap[PERIOD_MILLIS.length];
+    private final long[] cachedAt = new long[PERIOD_MILLIS.length];
+
+    private AppUsageCache(Context context) {
+        networkStatsManager = (NetworkStatsManager) context.getSystemService(Context.NETWORK_STATS_SERVICE);
+    }
+
+    public static synchronized AppUsageCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new AppUsageCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /** 返回未过期的缓存，没有时返回null */
+    public synchronized UidUsageMap getCached(int period) {
+        if (cached[period] != null && SystemClock.elapsedRealtime() - cachedAt[period] < CACHE_TTL) {
+            return cached[period];
+        }
+        return null;
+    }
+
+    /**
+     * 获取指定时间段的流量汇总。缓存有效时同步回调，否则在后台查询后回调。
+     */
+    public void load(int period, Callback callback) {
+        UidUsageMap usage = getCached(period);
+        if (usage != null) {
+            callback.onUsageLoaded(period, usage);
+            return;
+        }
+        executor.execute(() -> {
+            UidUsageMap result = getCached(period);
+            if (result == null) {
+                result = query(period);
+                if (result != null) {
+                    synchronized (this) {
+                        cached[period] = result;
+                        cachedAt[period] = SystemClock.elapsedRealtime();
+                    }
+                }
+            }
+            final UidUsageMap loaded = result;
+            mainHandler.post(() -> callback.onUsageLoaded(period, loaded));
+        });
+    }
+
+    /** 查询[now - period, now]内所有UID的流量，在调用线程上执行 */
+    public UidUsageMap query(int period) {
+        long end = System.currentTimeMillis();
+        return queryRange(end - PERIOD_MILLIS[period], end);
+    }
+
+    /**
+     * 查询[start, end]内所有UID的WiFi和蜂窝流量，在调用线程上执行，失败时返回null。
+     * 系统按2小时分桶记录，只被部分覆盖的桶按时间比例折算，因此短时间段（如近1小时）是估算值。
+     */
+    public UidUsageMap queryRange(long start, long end) {
+        UidUsageMap usage = new UidUsageMap(EXPECTED_UIDS);
+        try {
+            querySummary(ConnectivityManager.TYPE_WIFI, start, end, usage);
+            querySummary(ConnectivityManager.TYPE_MOBILE, start, end, usage);
+            return usage;
+        } catch (Exception e) {
+            System.out.println("ERROR: 查询应用流量汇总失败 - " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private void querySummary(int networkType, long start, long end, UidUsageMap usage) throws Exception {
+        NetworkStats stats = networkStatsManager.querySummary(networkType, null, start, end);
+        if (stats == null) {
+            return;
+        }
+        try {
+            // 复用同一个Bucket对象遍历
+            NetworkStats.Bucket bucket = new NetworkStats.Bucket();
+            while (stats.hasNextBucket()) {
+                stats.getNextBucket(bucket);
+                usage.add(bucket.getUid(), bucket.getRxBytes(), bucket.getTxBytes());
+            }
+        } finally {
+            stats.close();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.networkmonitor;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.os.SystemClock;
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 后台低功耗监控：没有悬浮窗和前台服务，由非唤醒的不精确重复闹钟驱动，
+ * 闹钟随系统其他唤醒批量触发，设备休眠时不会单独唤醒。
+ * 每次触发采样一次计数器并探测一次，得到的区间立即追加到pending.csv，基准数据写入SharedPreferences，
+ * 进程在两次闹钟之间被杀也不会丢失。区间在内存中攒满一批（约2小时）后才批量追加到intervals.csv，
+ * 同时用NetworkStatsManager更新当天各应用的累计流量，因此批量的是历史文件和应用汇总的写入，不是磁盘写入本身。
+ */
+public class BatchMonitorReceiver extends BroadcastReceiver {
+    private static final String ACTION_SAMPLE = "com.example.networkmonitor.action.BATCH_SAMPLE";
+    private static final long SAMPLE_INTERVAL = AlarmManager.INTERVAL_FIFTEEN_MINUTES; // 采样间隔15分钟
+    private static final int BATCH_SIZE = 8; // 每8个区间（约2小时）写入一次历史记录
+    private static final String HISTORY_DIR = "history";
+    private static final String PREFS_NAME = "batch_monitor";
+    private static final String KEY_RUNNING = "running";
+    private static final String KEY_BASE_TIME = "baseTime";
+    private static final String KEY_BASE_TOTAL_RX = "baseTotalRx";
+    private static final String KEY_BASE_TOTAL_TX = "baseTotalTx";
+    private static final String KEY_BASE_MOBILE_RX = "baseMobileRx";
+    private static final String KEY_BASE_MOBILE_TX = "baseMobileTx";
+    private static final String KEY_LAST_FLUSH_DAY = "lastFlushDay";
+
+    // 所有采样和写入都在这个线程上串行执行
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private static BatchSampler sampler;
+
+    public static void start(Context context) {
+        getPrefs(context).edit().putBoolean(KEY_RUNNING, true).apply();
+        scheduleAlarm(context);
+        // 立即采样一次建立基准
+        context.sendBroadcast(new Intent(context, BatchMonitorReceiver.class).setAction(ACTION_SAMPLE));
+    }
+
+    private static void scheduleAlarm(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        alarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME,
+                SystemClock.elapsedRealtime() + SAMPLE_INTERVAL, SAMPLE_INTERVAL, createAlarmIntent(context));
+    }
+
+    public static void stop(Context context) {
+        Context appContext = context.getApplicationContext();
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        alarmManager.cancel(createAlarmIntent(context));
+        getPrefs(context).edit().putBoolean(KEY_RUNNING, false).apply();
+        executor.execute(() -> {
+            flush(appContext);
+            // 停止期间的流量不计入下一次监控
+            sampler = null;
+            getPrefs(appContext).edit().remove(KEY_BASE_TIME).apply();
+        });
+    }
+
+    public static boolean isRunning(Context context) {
+        return getPrefs(context).getBoolean(KEY_RUNNING, false);
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (!isRunning(context)) {
+            return;
+        }
+        if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
+            // 重启会清除闹钟，重新设置后立即采样，重启前后的流量由计数器归零检测衔接
+            scheduleAlarm(context);
+        } else if (!ACTION_SAMPLE.equals(intent.getAction())) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        PendingResult result = goAsync();
+        executor.execute(() -> {
+            try {
+                sample(appContext);
+            } finally {
+                result.finish();
+            }
+        });
+    }
+
+    private static PendingIntent createAlarmIntent(Context context) {
+        Intent intent = new Intent(context, BatchMonitorReceiver.class).setAction(ACTION_SAMPLE);
+        return PendingIntent.getBroadcast(context, 0, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    private static SharedPreferences getPrefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private static UsageHistoryStore getStore(Context context) {
+        return new UsageHistoryStore(new File(context.getFilesDir(), HISTORY_DIR));
+    }
+
+    private static void sample(Context context) {
+        BatchSampler batchSampler = getSampler(context);
+        try {
+            if (batchSampler.sampleOnce(true)) {
+                // 每条区间记录立即落盘，进程被杀后不会丢失
+                SampleBuffer buffer = batchSampler.getBuffer();
+                getStore(context).appendPending(buffer, buffer.size() - 1);
+            }
+            saveBaseline(context, batchSampler);
+        } catch (Exception e) {
+            System.out.println("ERROR: 后台采样失败 - " + e.getMessage());
+            e.printStackTrace();
+        }
+        if (batchSampler.getBuffer().isFull()) {
+            flush(context);
+        }
+    }
+
+    private static BatchSampler getSampler(Context context) {
+        if (sampler == null) {
+            ConnectivityManager connectivityManager =
+                    (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+            LiveNetworkSources sources = new LiveNetworkSources(connectivityManager,
+                    FloatingWindowService.PING_HOST, FloatingWindowService.PING_TIMEOUT);
+            sampler = new BatchSampler(sources, sources, sources, BATCH_SIZE);
+
+            // 进程被杀后从上次的基准和未写入的区间继续
+            SharedPreferences prefs = getPrefs(context);
+            if (prefs.contains(KEY_BASE_TIME)) {
+                sampler.setBaseline(prefs.getLong(KEY_BASE_TIME, 0),
+                        prefs.getLong(KEY_BASE_TOTAL_RX, 0),
+                        prefs.getLong(KEY_BASE_TOTAL_TX, 0),
+                        prefs.getLong(KEY_BASE_MOBILE_RX, 0),
+                        prefs.getLong(KEY_BASE_MOBILE_TX, 0));
+            }
+            try {
+                getStore(context).loadPending(sampler.getBuffer());
+            } catch (Exception e) {
+                System.out.println("ERROR: 恢复未写入的区间失败 - " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+        return sampler;
+    }
+
+    private static void saveBaseline(Context context, BatchSampler batchSampler) {
+        if (!batchSampler.hasBaseline()) {
+            return;
+        }
+        getPrefs(context).edit()
+                .putLong(KEY_BASE_TIME, batchSampler.getBaseTime())
+                .putLong(KEY_BASE_TOTAL_RX, batchSampler.getBaseTotalRx())
+                .putLong(KEY_BASE_TOTAL_TX, batchSampler.getBaseTotalTx())
+                .putLong(KEY_BASE_MOBILE_RX, batchSampler.getBaseMobileRx())
+                .putLong(KEY_BASE_MOBILE_TX, batchSampler.getBaseMobileTx())
+                .apply();
+    }
+
+    private static void flush(Context context) {
+        BatchSampler batchSampler = getSampler(context);
+        UsageHistoryStore store = getStore(context);
+        try {
+            // 两步之间被杀时，下次恢复由loadPending跳过已写入的区间
+            store.appendIntervals(batchSampler.getBuffer());
+            store.clearPending();
+            batchSampler.getBuffer().clear();
+            writeDailyAppTotals(context, store);
+        } catch (Exception e) {
+            System.out.println("ERROR: 写入历史记录失败 - " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // 各应用的日累计流量直接取自系统统计，与采样间隔无关
+    private static void writeDailyAppTotals(Context context, UsageHistoryStore store) throws Exception {
+        SimpleDateFormat dayFormat = new SimpleDateFormat("yyyyMMdd", Locale.US);
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        long todayStart = calendar.getTimeInMillis();
+        String today = dayFormat.format(new Date(todayStart));
+        AppUsageCache usageCache = AppUsageCache.getInstance(context);
+
+        // 跨天后补全前一天的完整数据
+        SharedPreferences prefs = getPrefs(context);
+        String lastDay = prefs.getString(KEY_LAST_FLUSH_DAY, null);
+        if (lastDay != null && !lastDay.equals(today)) {
+            Date lastDate = dayFormat.parse(lastDay);
+            if (lastDate != null) {
+                calendar.setTime(lastDate);
+                calendar.add(Calendar.DAY_OF_MONTH, 1);
+                UidUsageMap lastDayUsage = usageCache.queryRange(lastDate.getTime(), calendar.getTimeInMillis());
+                if (lastDayUsage != null) {
+                    store.writeDailyAppTotals(lastDay, lastDayUsage);
+                }
+            }
+        }
+
+        UidUsageMap todayUsage = usageCache.queryRange(todayStart, System.currentTimeMillis());
+        if (todayUsage != null) {
+            store.writeDailyAppTotals(today, todayUsage);
+            prefs.edit().putString(KEY_LAST_FLUSH_DAY, today).apply();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.networkmonitor;
+
+/**
+ * 低功耗模式的采样器：每次被唤醒时采样一次计数器并探测一次，
+ * 把与上一次采样之间的增量写入{@link SampleBuffer}，不计算瞬时速率也不更新界面。
+ * 计数器是累计值，采样间隔再长也不会漏算流量；进程被杀后从上次持久化的基准继续，
+ * 丢失的区间会并入下一个区间。
+ */
+public class BatchSampler {
+    private final CounterSource counterSource;
+    private final ConnectivitySource connectivitySource;
+    private final ProbeSource probeSource;
+    private final SampleBuffer buffer;
+    private final NetworkStatsEngine.Sample sample = new NetworkStatsEngine.Sample();
+
+    // 上一次采样的基准数据
+    private boolean hasBaseline = false;
+    private long baseTime;
+    private long baseTotalRx;
+    private long baseTotalTx;
+    private long baseMobileRx;
+    private long baseMobileTx;
+
+    public BatchSampler(CounterSource counterSource, ConnectivitySource connectivitySource,
+                        ProbeSource probeSource, int batchSize) {
+        this.counterSource = counterSource;
+        this.connectivitySource = connectivitySource;
+        this.probeSource = probeSource;
+        this.buffer = new SampleBuffer(batchSize);
+    }
+
+    /**
+     * 采样一次并记录区间增量，首次采样只建立基准。
+     * @param probe 是否同时发出一次探测
+     * @return 写入了一条区间记录时返回true
+     */
+    public boolean sampleOnce(boolean probe) throws Exception {
+        if (!counterSource.readCounters(sample)) {
+            return false;
+        }
+        int networkType = connectivitySource.getNetworkType();
+        double rtt = probe ? probeSource.probe() : ProbeSource.LOST;
+
+        boolean recorded = false;
+        if (hasBaseline && sample.timeMillis > baseTime && !buffer.isFull()) {
+            // 计数器变小说明设备重启过，重启后的计数从0开始
+            boolean rebooted = sample.totalRxBytes < baseTotalRx || sample.totalTxBytes < baseTotalTx;
+            long totalRx = rebooted ? sample.totalRxBytes : sample.totalRxBytes - baseTotalRx;
+            long totalTx = rebooted ? sample.totalTxBytes : sample.totalTxBytes - baseTotalTx;
+            long mobileRx = rebooted ? sample.mobileRxBytes : Math.max(0, sample.mobileRxBytes - baseMobileRx);
+            long mobileTx = rebooted ? sample.mobileTxBytes : Math.max(0, sample.mobileTxBytes - baseMobileTx);
+            recorded = buffer.add(baseTime, sample.timeMillis, networkType,
+                    Math.max(0, totalRx - mobileRx), Math.max(0, totalTx - mobileTx),
+                    mobileRx, mobileTx, rtt);
+        }
+        // 时钟被调回时重新建立基准
+        if (recorded || !hasBaseline || sample.timeMillis <= baseTime) {
+            setBaseline(sample.timeMillis, sample.totalRxBytes, sample.totalTxBytes,
+                    sample.mobileRxBytes, sample.mobileTxBytes);
+        }
+        return recorded;
+    }
+
+    /** 恢复持久化的基准数据 */
+    public void setBaseline(long time, long totalRx, long totalTx, long mobileRx, long mobileTx) {
+        hasBaseline = true;
+        baseTime = time;
+        baseTotalRx = totalRx;
+        baseTotalTx = totalTx;
+        baseMobileRx = mobileRx;
+        baseMobileTx = mobileTx;
+    }
+
+    public boolean hasBaseline() {
+        return hasBaseline;
+    }
+
+    public long getBaseTime() {
+        return baseTime;
+    }
+
+    public long getBaseTotalRx() {
+        return baseTotalRx;
+    }
+
+    public long getBaseTotalTx() {
+        return baseTotalTx;
+    }
+
+    public long getBaseMobileRx() {
+        return baseMobileRx;
+    }
+
+    public long getBaseMobileTx() {
+        return baseMobileTx;
+    }
+
+    public SampleBuffer getBuffer() {
+        return buffer;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.networkmonitor;
+
+/**
+ * 当前活动网络类型的数据源。
+ */
+public interface ConnectivitySource {
+    int NETWORK_NONE = 0;
+    int NETWORK_WIFI = 1;
+    int NETWORK_MOBILE = 2;
+
+    int getNetworkType();
+}
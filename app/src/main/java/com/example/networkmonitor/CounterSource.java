@@ -0,0 +1,12 @@
+package com.example.networkmonitor;
+
+/**
+ * 流量计数器数据源。实时实现读取TrafficStats，回放实现读取录制的轨迹。
+ */
+public interface CounterSource {
+    /**
+     * 将当前时间和累计计数器写入sample，复用调用方的对象以避免分配。
+     * @return 没有更多数据时返回false（仅回放数据源会出现）
+     */
+    boolean readCounters(NetworkStatsEngine.Sample sample);
+}
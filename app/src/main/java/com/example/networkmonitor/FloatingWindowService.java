@@ -13,8 +13,8 @@ import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.graphics.PixelFormat;
 import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
 import android.os.Build;
+import android.os.Debug;
 import android.os.Handler;
 import android.os.IBinder;
 import android.provider.Settings;
@@ -34,26 +34,24 @@ import android.Manifest;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
-import android.net.TrafficStats;
 import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
 import android.net.Network;
 import android.net.NetworkCapabilities;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.util.LinkedList;
+import java.io.File;
+import java.io.FileWriter;
 
 public class FloatingWindowService extends Service {
     private static final int NOTIFICATION_ID = 1;
     private static final String CHANNEL_ID = "NetworkMonitorChannel";
     private static final long UPDATE_INTERVAL = 1000; // 更新间隔为1秒
-    private static final double MOBILE_SPEED_THRESHOLD = 50.0; // 蜂窝流量阈值，单位KB/s
-    private static final String PING_HOST = "8.8.8.8"; // Google DNS服务器
-    private static final int PING_COUNT = 1; // 每次只ping一个包
-    private static final int PING_TIMEOUT = 1000; // ping超时时间（毫秒）
+    static final String PING_HOST = "8.8.8.8"; // Google DNS服务器
+    static final int PING_TIMEOUT = 1000; // ping超时时间（毫秒）
     private static final int WINDOW_SIZE = 4; // 滑动窗口大小
+    private static final String SELF_STATS_FILE = "self_stats.txt"; // 自身开销导出文件
+    private static final int SELF_STATS_EXPORT_TICKS = 60; // 每60个统计周期导出一次
     
     private WindowManager windowManager;
     private View floatingView;
@@ -61,16 +59,12 @@ public class FloatingWindowService extends Service {
     private String appName;
     private NetworkStatsManager networkStatsManager;
     private Timer timer;
+    private int ticksSinceExport = 0; // 只在Timer线程上访问
     private Handler handler;
     private ConnectivityManager connectivityManager;
     private ExecutorService pingExecutor;
     
-    private long lastWifiRx = 0;
-    private long lastWifiTx = 0;
-    private long lastMobileRx = 0;
-    private long lastMobileTx = 0;
     private long lastUpdateTime = 0;
-    private long lastQueryTime = 0;
     private long accumulatedWifiRx = 0;
     private long accumulatedWifiTx = 0;
     private long accumulatedMobileRx = 0;
@@ -78,12 +72,18 @@ public class FloatingWindowService extends Service {
     private long lastDisplayUpdateTime = 0;
     private int defaultBackgroundColor;
     
-    // 网络质量指标
-    private final LinkedList<Double> rttWindow = new LinkedList<>();
-    private final LinkedList<Boolean> lossWindow = new LinkedList<>();
-    private double packetLossRate = 0.0;
-    private double averageRtt = 0.0;
-    private final Object networkQualityLock = new Object();
+    // 采样、速率计算和网络质量窗口
+    private MonitorPipeline pipeline;
+    private TraceRecorder traceRecorder; // 录制轨迹供TraceReplaySource回放
+    private final NetworkStatsEngine.Speed speed = new NetworkStatsEngine.Speed();
+
+    // 自身开销统计
+    private final SelfInstrumentation selfStats = new SelfInstrumentation();
+    // 服务创建时的进程累计值，报告只统计服务运行期间的部分
+    private long startCpuMillis;
+    private long startAllocatedBytes;
+    private long startGcCount;
+    private TextView debugView;
 
     @Override
     public IBinder onBind(Intent intent) {
@@ -93,10 +93,16 @@ public class FloatingWindowService extends Service {
     @Override
     public void onCreate() {
         super.onCreate();
+        startCpuMillis = android.os.Process.getElapsedCpuTime();
+        startAllocatedBytes = readRuntimeStat("art.gc.bytes-allocated");
+        startGcCount = readRuntimeStat("art.gc.gc-count");
         windowManager = (WindowManager) getSystemService(WINDOW_SERVICE);
         handler = new Handler();
         connectivityManager = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
         pingExecutor = Executors.newSingleThreadExecutor();
+        LiveNetworkSources sources = new LiveNetworkSources(connectivityManager, PING_HOST, PING_TIMEOUT);
+        traceRecorder = new TraceRecorder(sources, sources, sources);
+        pipeline = new MonitorPipeline(traceRecorder, traceRecorder, traceRecorder, WINDOW_SIZE);
         createNotificationChannel();
         startForeground(NOTIFICATION_ID, createNotification());
     }
@@ -189,6 +195,28 @@ public class FloatingWindowService extends Service {
             }
         });
 
+        debugView = floatingView.findViewById(R.id.debug_text);
+        Button debugButton = floatingView.findViewById(R.id.debug_button);
+        debugButton.setOnClickListener(v -> {
+            // 打开调试面板时才读取线程CPU时间
+            boolean show = debugView.getVisibility() != View.VISIBLE;
+            selfStats.setDetailed(show);
+            debugView.setVisibility(show ? View.VISIBLE : View.GONE);
+            if (show) {
+                debugView.setText(buildSelfStatsReport());
+            }
+        });
+
+        Button recordButton = floatingView.findViewById(R.id.record_button);
+        recordButton.setOnClickListener(v -> {
+            if (traceRecorder.isRecording()) {
+                stopTraceRecording();
+            } else {
+                startTraceRecording();
+            }
+            recordButton.setText(traceRecorder.isRecording() ? "停止录制" : "录制");
+        });
+
         Button stopButton = floatingView.findViewById(R.id.stop_button);
         stopButton.setOnClickListener(v -> {
             stopSelf();
@@ -212,7 +240,19 @@ public class FloatingWindowService extends Service {
         timer.scheduleAtFixedRate(new TimerTask() {
             @Override
             public void run() {
+                selfStats.recordWakeup(SelfInstrumentation.WAKEUP_TIMER);
+                boolean detailed = selfStats.isDetailed();
+                long cpuStart = detailed ? Debug.threadCpuTimeNanos() : 0;
                 updateNetworkStats(false);
+                if (detailed) {
+                    selfStats.addThreadCpuNanos(SelfInstrumentation.WAKEUP_TIMER,
+                            Debug.threadCpuTimeNanos() - cpuStart);
+                }
+                // 定期导出，服务被系统杀死时也能留下最近的数据
+                if (++ticksSinceExport >= SELF_STATS_EXPORT_TICKS) {
+                    ticksSinceExport = 0;
+                    exportSelfStats();
+                }
             }
         }, UPDATE_INTERVAL, UPDATE_INTERVAL);
 
@@ -225,59 +265,21 @@ public class FloatingWindowService extends Service {
             while (!Thread.currentThread().isInterrupted()) {
                 try {
                     long startTime = System.currentTimeMillis();
-                    
-                    Process process = Runtime.getRuntime().exec("ping -c " + PING_COUNT + " -W " + (PING_TIMEOUT / 1000) + " " + PING_HOST);
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-                    String line;
-                    boolean packetLost = true;
-                    double rtt = 0.0;
-
-                    while ((line = reader.readLine()) != null) {
-                        if (line.contains("time=")) {
-                            // 解析RTT
-                            String timeStr = line.substring(line.indexOf("time=") + 5);
-                            timeStr = timeStr.substring(0, timeStr.indexOf(" ms"));
-                            rtt = Double.parseDouble(timeStr);
-                            packetLost = false;
-                            break;
-                        }
-                    }
-
-                    process.waitFor();
+                    selfStats.recordWakeup(SelfInstrumentation.WAKEUP_PROBE);
+                    boolean detailed = selfStats.isDetailed();
+                    long cpuStart = detailed ? Debug.threadCpuTimeNanos() : 0;
+                    long probeStart = selfStats.probe.start();
 
-                    // 更新滑动窗口
-                    synchronized (networkQualityLock) {
-                        // 更新RTT窗口
-                        rttWindow.addLast(rtt);
-                        if (rttWindow.size() > WINDOW_SIZE) {
-                            rttWindow.removeFirst();
-                        }
-
-                        // 更新丢包窗口
-                        lossWindow.addLast(packetLost);
-                        if (lossWindow.size() > WINDOW_SIZE) {
-                            lossWindow.removeFirst();
-                        }
-
-                        // 计算平均RTT
-                        double totalRtt = 0.0;
-                        int validRttCount = 0;
-                        for (Double r : rttWindow) {
-                            if (r > 0) {
-                                totalRtt += r;
-                                validRttCount++;
-                            }
-                        }
-                        averageRtt = validRttCount > 0 ? totalRtt / validRttCount : 0.0;
-
-                        // 计算丢包率
-                        int lostCount = 0;
-                        for (Boolean lost : lossWindow) {
-                            if (lost) {
-                                lostCount++;
-                            }
+                    try {
+                        // 探测并更新滑动窗口
+                        pipeline.probeOnce();
+                    } finally {
+                        // 失败或超时的探测同样计入开销
+                        selfStats.probe.stop(probeStart);
+                        if (detailed) {
+                            selfStats.addThreadCpuNanos(SelfInstrumentation.WAKEUP_PROBE,
+                                    Debug.threadCpuTimeNanos() - cpuStart);
                         }
-                        packetLossRate = (lossWindow.size() > 0) ? (lostCount * 100.0) / lossWindow.size() : 0.0;
                     }
 
                     // 计算剩余等待时间
@@ -299,85 +301,134 @@ public class FloatingWindowService extends Service {
 
     private void updateNetworkStats(boolean isInitial) {
         try {
-            long now = System.currentTimeMillis();
-            
-            // 获取当前网络类型
-            NetworkInfo activeNetwork = connectivityManager.getActiveNetworkInfo();
-            boolean isWifi = activeNetwork != null && activeNetwork.getType() == ConnectivityManager.TYPE_WIFI;
-            boolean isMobile = activeNetwork != null && activeNetwork.getType() == ConnectivityManager.TYPE_MOBILE;
-
-            // 获取系统总流量
-            long totalRxBytes = TrafficStats.getTotalRxBytes();
-            long totalTxBytes = TrafficStats.getTotalTxBytes();
-            
-            // 获取移动数据流量
-            long mobileRxBytes = TrafficStats.getMobileRxBytes();
-            long mobileTxBytes = TrafficStats.getMobileTxBytes();
-            
-            // 计算WiFi流量 = 总流量 - 移动数据流量
-            long wifiRxBytes = totalRxBytes - mobileRxBytes;
-            long wifiTxBytes = totalTxBytes - mobileTxBytes;
-
-            // 计算速率
-            if (!isInitial && lastQueryTime > 0) {
-                long timeDiff = now - lastQueryTime;
-                if (timeDiff > 0) {
-                    // 计算这段时间内的数据传输速率（字节/秒）
-                    double wifiRxSpeed = ((wifiRxBytes - lastWifiRx) * 1000.0) / timeDiff;
-                    double wifiTxSpeed = ((wifiTxBytes - lastWifiTx) * 1000.0) / timeDiff;
-                    double mobileRxSpeed = ((mobileRxBytes - lastMobileRx) * 1000.0) / timeDiff;
-                    double mobileTxSpeed = ((mobileTxBytes - lastMobileTx) * 1000.0) / timeDiff;
-
-                    // 计算总带宽（上下行之和）
-                    double totalMobileSpeed = (mobileRxSpeed + mobileTxSpeed) / 1024.0; // 转换为KB/s
-
-                    // 获取网络质量指标
-                    double currentPacketLossRate;
-                    double currentAverageRtt;
-                    synchronized (networkQualityLock) {
-                        currentPacketLossRate = packetLossRate;
-                        currentAverageRtt = averageRtt;
-                    }
-
-                    // 更新UI显示
-                    final String wifiSpeedText = String.format("WiFi ↓%.1fKB/s ↑%.1fKB/s",
+            long sampleStart = selfStats.sample.start();
+            if (isInitial) {
+                pipeline.reset();
+            }
+            // 获取当前网络类型和系统流量计数器
+            pipeline.readSample();
+            selfStats.sample.stop(sampleStart);
+
+            // 计算速率，首次采样只更新基准数据
+            long computeStart = selfStats.compute.start();
+            boolean computed = pipeline.computeSpeed(speed);
+            // 获取网络质量指标
+            NetworkQualityWindow qualityWindow = pipeline.getQualityWindow();
+            final double currentPacketLossRate = qualityWindow.getPacketLossRate();
+            final double currentAverageRtt = qualityWindow.getAverageRtt();
+            selfStats.compute.stop(computeStart);
+
+            if (computed) {
+                // speed在Timer线程上复用，先复制给主线程使用
+                final double wifiRxSpeed = speed.wifiRxSpeed;
+                final double wifiTxSpeed = speed.wifiTxSpeed;
+                final double mobileRxSpeed = speed.mobileRxSpeed;
+                final double mobileTxSpeed = speed.mobileTxSpeed;
+                final boolean mobileOverThreshold = speed.isMobileOverThreshold();
+
+                selfStats.recordWakeup(SelfInstrumentation.WAKEUP_HANDLER);
+                handler.post(() -> {
+                    // 文本格式化计入render阶段
+                    long renderStart = selfStats.render.start();
+                    boolean detailed = selfStats.isDetailed();
+                    long cpuStart = detailed ? Debug.threadCpuTimeNanos() : 0;
+                    String wifiSpeedText = String.format("WiFi ↓%.1fKB/s ↑%.1fKB/s",
                             wifiRxSpeed / 1024, wifiTxSpeed / 1024);
-                    final String mobileSpeedText = String.format("流量 ↓%.1fKB/s ↑%.1fKB/s",
+                    String mobileSpeedText = String.format("流量 ↓%.1fKB/s ↑%.1fKB/s",
                             mobileRxSpeed / 1024, mobileTxSpeed / 1024);
-                    final String networkQualityText = String.format("丢包率: %.1f%% RTT: %.1fms",
+                    String networkQualityText = String.format("丢包率: %.1f%% RTT: %.1fms",
                             currentPacketLossRate, currentAverageRtt);
+                    TextView statView = floatingView.findViewById(R.id.stats_text);
+                    statView.setText(wifiSpeedText + "\n" + mobileSpeedText + "\n" + networkQualityText);
+
+                    // 根据蜂窝流量带宽更新背景颜色
+                    if (mobileOverThreshold) {
+                        // 使用淡红色背景
+                        floatingView.setBackgroundColor(Color.argb(50, 255, 0, 0));
+                    } else {
+                        // 恢复默认背景颜色
+                        floatingView.setBackgroundColor(defaultBackgroundColor);
+                    }
+                    selfStats.render.stop(renderStart);
 
-                    handler.post(() -> {
-                        TextView statView = floatingView.findViewById(R.id.stats_text);
-                        statView.setText(wifiSpeedText + "\n" + mobileSpeedText + "\n" + networkQualityText);
-
-                        // 根据蜂窝流量带宽更新背景颜色
-                        if (totalMobileSpeed > MOBILE_SPEED_THRESHOLD) {
-                            // 使用淡红色背景
-                            floatingView.setBackgroundColor(Color.argb(50, 255, 0, 0));
-                        } else {
-                            // 恢复默认背景颜色
-                            floatingView.setBackgroundColor(defaultBackgroundColor);
-                        }
-                    });
-
+                    if (detailed) {
+                        debugView.setText(buildSelfStatsReport());
+                        selfStats.addThreadCpuNanos(SelfInstrumentation.WAKEUP_HANDLER,
+                                Debug.threadCpuTimeNanos() - cpuStart);
+                    }
                     System.out.println("DEBUG: 速率更新 - " + wifiSpeedText + " | " + mobileSpeedText + " | " + networkQualityText);
-                }
+                });
             }
-
-            // 更新基准数据
-            lastWifiRx = wifiRxBytes;
-            lastWifiTx = wifiTxBytes;
-            lastMobileRx = mobileRxBytes;
-            lastMobileTx = mobileTxBytes;
-            lastQueryTime = now;
-
         } catch (Exception e) {
             System.out.println("ERROR: 网络统计更新失败 - " + e.getMessage());
             e.printStackTrace();
         }
     }
 
+    private String buildSelfStatsReport() {
+        return selfStats.report(android.os.Process.getElapsedCpuTime() - startCpuMillis,
+                sinceStart(readRuntimeStat("art.gc.bytes-allocated"), startAllocatedBytes),
+                sinceStart(readRuntimeStat("art.gc.gc-count"), startGcCount));
+    }
+
+    private static long sinceStart(long current, long start) {
+        return current >= 0 && start >= 0 ? current - start : -1;
+    }
+
+    private static long readRuntimeStat(String name) {
+        try {
+            String value = Debug.getRuntimeStat(name);
+            return value != null ? Long.parseLong(value) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // 将自身开销报告写入应用私有外部存储，可通过adb pull导出
+    private void exportSelfStats() {
+        String report = buildSelfStatsReport();
+        System.out.println("DEBUG: 自身开销\n" + report);
+        File dir = getExternalFilesDir(null);
+        if (dir == null) {
+            return;
+        }
+        try (FileWriter writer = new FileWriter(new File(dir, SELF_STATS_FILE))) {
+            writer.write(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date()));
+            writer.write("\n");
+            writer.write(report);
+            writer.write("\n");
+        } catch (Exception e) {
+            System.out.println("ERROR: 导出自身开销失败 - " + e.getMessage());
+        }
+    }
+
+    // 轨迹写入应用私有外部存储，每次录制一个文件
+    private void startTraceRecording() {
+        File dir = getExternalFilesDir(null);
+        if (dir == null) {
+            Toast.makeText(this, "外部存储不可用", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        String name = "trace-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date()) + ".csv";
+        File file = new File(dir, name);
+        try {
+            traceRecorder.start(new FileWriter(file));
+            Toast.makeText(this, "开始录制: " + file.getAbsolutePath(), Toast.LENGTH_SHORT).show();
+        } catch (Exception e) {
+            System.out.println("ERROR: 开始录制轨迹失败 - " + e.getMessage());
+            Toast.makeText(this, "开始录制失败", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    private void stopTraceRecording() {
+        try {
+            int count = traceRecorder.stop();
+            Toast.makeText(this, "录制结束，共" + count + "条记录", Toast.LENGTH_SHORT).show();
+        } catch (Exception e) {
+            System.out.println("ERROR: 结束录制轨迹失败 - " + e.getMessage());
+        }
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
@@ -387,6 +438,12 @@ public class FloatingWindowService extends Service {
         if (pingExecutor != null) {
             pingExecutor.shutdownNow();
         }
+        exportSelfStats();
+        try {
+            traceRecorder.stop();
+        } catch (Exception e) {
+            System.out.println("ERROR: 结束录制轨迹失败 - " + e.getMessage());
+        }
         if (floatingView != null && windowManager != null) {
             windowManager.removeView(floatingView);
         }
@@ -0,0 +1,72 @@
+package com.example.networkmonitor;
+
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.net.TrafficStats;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+
+/**
+ * 设备上的实时数据源：TrafficStats计数器、ConnectivityManager网络类型和ping探测。
+ */
+public class LiveNetworkSources implements CounterSource, ConnectivitySource, ProbeSource {
+    private static final int PING_COUNT = 1; // 每次只ping一个包
+
+    private final ConnectivityManager connectivityManager;
+    private final String pingHost;
+    private final int pingTimeoutMillis;
+
+    public LiveNetworkSources(ConnectivityManager connectivityManager, String pingHost, int pingTimeoutMillis) {
+        this.connectivityManager = connectivityManager;
+        this.pingHost = pingHost;
+        this.pingTimeoutMillis = pingTimeoutMillis;
+    }
+
+    @Override
+    public boolean readCounters(NetworkStatsEngine.Sample sample) {
+        sample.timeMillis = System.currentTimeMillis();
+        // 获取系统总流量
+        sample.totalRxBytes = TrafficStats.getTotalRxBytes();
+        sample.totalTxBytes = TrafficStats.getTotalTxBytes();
+        // 获取移动数据流量
+        sample.mobileRxBytes = TrafficStats.getMobileRxBytes();
+        sample.mobileTxBytes = TrafficStats.getMobileTxBytes();
+        return true;
+    }
+
+    @Override
+    public int getNetworkType() {
+        NetworkInfo activeNetwork = connectivityManager.getActiveNetworkInfo();
+        if (activeNetwork == null) {
+            return NETWORK_NONE;
+        }
+        switch (activeNetwork.getType()) {
+            case ConnectivityManager.TYPE_WIFI:
+                return NETWORK_WIFI;
+            case ConnectivityManager.TYPE_MOBILE:
+                return NETWORK_MOBILE;
+            default:
+                return NETWORK_NONE;
+        }
+    }
+
+    @Override
+    public double probe() throws Exception {
+        Process process = Runtime.getRuntime().exec("ping -c " + PING_COUNT + " -W " + (pingTimeoutMillis / 1000) + " " + pingHost);
+        double rtt = LOST;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.contains("time=")) {
+                    // 解析RTT
+                    String timeStr = line.substring(line.indexOf("time=") + 5);
+                    timeStr = timeStr.substring(0, timeStr.indexOf(" ms"));
+                    rtt = Double.parseDouble(timeStr);
+                    break;
+                }
+            }
+        }
+        process.waitFor();
+        return rtt;
+    }
+}
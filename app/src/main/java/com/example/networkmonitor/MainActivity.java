@@ -10,15 +10,18 @@ import android.os.Bundle;
 import android.provider.Settings;
 import android.text.Editable;
 import android.text.TextWatcher;
+import android.util.SparseIntArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.inputmethod.EditorInfo;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.ArrayAdapter;
+import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ImageButton;
 import android.widget.ListView;
+import android.widget.RadioGroup;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
@@ -37,7 +40,10 @@ public class MainActivity extends AppCompatActivity {
     private EditText searchBox;
     private ImageButton clearSearchButton;
     private TextView searchResultInfo;
+    private Button batchMonitorButton;
     private List<AppInfo> currentDisplayedApps;
+    private int usagePeriod = AppUsageCache.PERIOD_DAY;
+    private boolean usageLoaded = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -49,6 +55,8 @@ public class MainActivity extends AppCompatActivity {
         searchResultInfo = findViewById(R.id.search_result_info);
         
         setupSearchFeatures();
+        setupUsagePeriod();
+        setupBatchMonitor();
 
         if (!checkPermissions()) {
             showPermissionGuide();
@@ -101,12 +109,54 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
-    private boolean checkPermissions() {
-        // 检查使用情况访问权限
+    private void setupUsagePeriod() {
+        RadioGroup periodGroup = findViewById(R.id.usage_period);
+        periodGroup.setOnCheckedChangeListener((group, checkedId) -> {
+            if (checkedId == R.id.period_hour) {
+                usagePeriod = AppUsageCache.PERIOD_HOUR;
+            } else if (checkedId == R.id.period_month) {
+                usagePeriod = AppUsageCache.PERIOD_MONTH;
+            } else {
+                usagePeriod = AppUsageCache.PERIOD_DAY;
+            }
+            loadUsage();
+        });
+    }
+
+    private void setupBatchMonitor() {
+        batchMonitorButton = findViewById(R.id.batch_monitor_button);
+        updateBatchMonitorButton();
+        batchMonitorButton.setOnClickListener(v -> {
+            if (BatchMonitorReceiver.isRunning(this)) {
+                BatchMonitorReceiver.stop(this);
+                Toast.makeText(this, "后台监控已停止，历史记录已保存", Toast.LENGTH_SHORT).show();
+            } else {
+                // 后台模式没有悬浮窗，只需要使用情况访问权限
+                if (!hasUsageAccess()) {
+                    showUsageAccessGuide();
+                    return;
+                }
+                BatchMonitorReceiver.start(this);
+                Toast.makeText(this, "后台监控已开启，每15分钟批量采样一次", Toast.LENGTH_SHORT).show();
+            }
+            updateBatchMonitorButton();
+        });
+    }
+
+    private void updateBatchMonitorButton() {
+        batchMonitorButton.setText(BatchMonitorReceiver.isRunning(this) ? "停止后台低功耗监控" : "开启后台低功耗监控");
+    }
+
+    private boolean hasUsageAccess() {
         AppOpsManager appOps = (AppOpsManager) getSystemService(Context.APP_OPS_SERVICE);
         int mode = appOps.checkOpNoThrow(AppOpsManager.OPSTR_GET_USAGE_STATS,
                 android.os.Process.myUid(), getPackageName());
-        boolean hasUsagePermission = mode == AppOpsManager.MODE_ALLOWED;
+        return mode == AppOpsManager.MODE_ALLOWED;
+    }
+
+    private boolean checkPermissions() {
+        // 检查使用情况访问权限
+        boolean hasUsagePermission = hasUsageAccess();
 
         // 检查悬浮窗权限
         boolean hasOverlayPermission = Settings.canDrawOverlays(this);
@@ -131,20 +181,20 @@ public class MainActivity extends AppCompatActivity {
                 .show();
     }
 
-    private void requestPermissions() {
-        AppOpsManager appOps = (AppOpsManager) getSystemService(Context.APP_OPS_SERVICE);
-        int mode = appOps.checkOpNoThrow(AppOpsManager.OPSTR_GET_USAGE_STATS,
-                android.os.Process.myUid(), getPackageName());
+    private void showUsageAccessGuide() {
+        new AlertDialog.Builder(this)
+                .setTitle("使用情况访问权限")
+                .setMessage("在接下来的页面中，请找到\"网络监控\"应用并开启权限。")
+                .setPositiveButton("去开启", (dialog, which) -> {
+                    startActivity(new Intent(Settings.ACTION_USAGE_ACCESS_SETTINGS));
+                })
+                .show();
+    }
 
-        if (mode != AppOpsManager.MODE_ALLOWED) {
+    private void requestPermissions() {
+        if (!hasUsageAccess()) {
             // 显示使用情况访问权限说明
-            new AlertDialog.Builder(this)
-                    .setTitle("使用情况访问权限")
-                    .setMessage("在接下来的页面中，请找到\"网络监控\"应用并开启权限。")
-                    .setPositiveButton("去开启", (dialog, which) -> {
-                        startActivity(new Intent(Settings.ACTION_USAGE_ACCESS_SETTINGS));
-                    })
-                    .show();
+            showUsageAccessGuide();
             return;
         }
 
@@ -206,6 +256,15 @@ public class MainActivity extends AppCompatActivity {
                 }
             }
 
+            // 统计共用同一UID的应用数量，系统统计只能按UID区分，这些应用无法分开计算流量
+            SparseIntArray packagesPerUid = new SparseIntArray();
+            for (AppInfo app : allApps) {
+                packagesPerUid.put(app.uid, packagesPerUid.get(app.uid) + 1);
+            }
+            for (AppInfo app : allApps) {
+                app.sharedUidCount = packagesPerUid.get(app.uid);
+            }
+
             // 按应用名称排序
             Collections.sort(allApps, (a, b) -> a.name.compareToIgnoreCase(b.name));
             
@@ -233,6 +292,53 @@ public class MainActivity extends AppCompatActivity {
             startService(serviceIntent);
             moveTaskToBack(true);
         });
+
+        loadUsage();
+    }
+
+    private void loadUsage() {
+        if (allApps == null) return;
+
+        // 缓存有效时同步返回，否则在后台查询，列表先按名称显示
+        AppUsageCache.getInstance(this).load(usagePeriod, (period, usage) -> {
+            if (isFinishing() || isDestroyed() || period != usagePeriod) {
+                return;
+            }
+            if (usage == null) {
+                Toast.makeText(this, "获取应用流量失败", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            applyUsage(usage);
+        });
+    }
+
+    private void applyUsage(UidUsageMap usage) {
+        // 按UID关联流量数据
+        for (AppInfo app : allApps) {
+            app.rxBytes = usage.getRxBytes(app.uid);
+            app.txBytes = usage.getTxBytes(app.uid);
+        }
+        usageLoaded = true;
+
+        // 独占UID的应用排在前面，共享UID的应用显示的是整个UID的合计，排在后面；
+        // 各组内按流量从高到低排序，流量相同时按名称排序
+        Collections.sort(allApps, (a, b) -> {
+            int byShared = Boolean.compare(a.isSharedUid(), b.isSharedUid());
+            if (byShared != 0) {
+                return byShared;
+            }
+            int byUsage = Long.compare(b.rxBytes + b.txBytes, a.rxBytes + a.txBytes);
+            return byUsage != 0 ? byUsage : a.name.compareToIgnoreCase(b.name);
+        });
+
+        String query = searchBox.getText().toString();
+        if (query.isEmpty()) {
+            currentDisplayedApps = new ArrayList<>(allApps);
+            adapter.clear();
+            adapter.addAll(currentDisplayedApps);
+        } else {
+            filterApps(query);
+        }
     }
 
     private void filterApps(String query) {
@@ -294,15 +400,35 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + "B";
+        } else if (bytes < 1024 * 1024) {
+            return String.format("%.1fKB", bytes / 1024.0);
+        } else if (bytes < 1024L * 1024 * 1024) {
+            return String.format("%.1fMB", bytes / (1024.0 * 1024));
+        }
+        return String.format("%.2fGB", bytes / (1024.0 * 1024 * 1024));
+    }
+
     private static class AppInfo {
         ApplicationInfo applicationInfo;
         String name;
         String packageName;
+        int uid;
+        int sharedUidCount = 1;
+        long rxBytes;
+        long txBytes;
 
         AppInfo(ApplicationInfo applicationInfo, String name, String packageName) {
             this.applicationInfo = applicationInfo;
             this.name = name;
             this.packageName = packageName;
+            this.uid = applicationInfo.uid;
+        }
+
+        boolean isSharedUid() {
+            return sharedUidCount > 1;
         }
     }
 
@@ -325,9 +451,20 @@ public class MainActivity extends AppCompatActivity {
             if (app != null) {
                 TextView appNameView = convertView.findViewById(R.id.app_name);
                 TextView packageNameView = convertView.findViewById(R.id.package_name);
+                TextView usageView = convertView.findViewById(R.id.app_usage);
 
                 appNameView.setText(app.name);
                 packageNameView.setText(app.packageName);
+                if (usageLoaded) {
+                    usageView.setVisibility(View.VISIBLE);
+                    String usageText = "↓" + formatBytes(app.rxBytes) + " ↑" + formatBytes(app.txBytes);
+                    if (app.isSharedUid()) {
+                        usageText = "共享UID " + app.uid + "（" + app.sharedUidCount + "个应用合计）" + usageText;
+                    }
+                    usageView.setText(usageText);
+                } else {
+                    usageView.setVisibility(View.GONE);
+                }
             }
 
             return convertView;
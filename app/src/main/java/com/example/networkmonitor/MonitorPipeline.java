@@ -0,0 +1,63 @@
+package com.example.networkmonitor;
+
+/**
+ * 监控流水线：从数据源采样，计算速率，并维护网络质量窗口。
+ * 不依赖具体数据源，实时监控和轨迹回放走同一条路径。
+ * {@link #readSample}与{@link #computeSpeed}须在同一线程调用，{@link #probeOnce}可在另一线程调用。
+ */
+public class MonitorPipeline {
+    private final CounterSource counterSource;
+    private final ConnectivitySource connectivitySource;
+    private final ProbeSource probeSource;
+    private final NetworkStatsEngine engine = new NetworkStatsEngine();
+    private final NetworkQualityWindow qualityWindow;
+    private final NetworkStatsEngine.Sample sample = new NetworkStatsEngine.Sample();
+
+    public MonitorPipeline(CounterSource counterSource, ConnectivitySource connectivitySource,
+                           ProbeSource probeSource, int windowSize) {
+        this.counterSource = counterSource;
+        this.connectivitySource = connectivitySource;
+        this.probeSource = probeSource;
+        this.qualityWindow = new NetworkQualityWindow(windowSize);
+    }
+
+    /**
+     * 读取一次计数器和网络类型。
+     * @return 数据源已耗尽时返回false
+     */
+    public boolean readSample() {
+        if (!counterSource.readCounters(sample)) {
+            return false;
+        }
+        sample.networkType = connectivitySource.getNetworkType();
+        return true;
+    }
+
+    /**
+     * 用最近一次采样计算速率，首次采样只更新基准。
+     */
+    public boolean computeSpeed(NetworkStatsEngine.Speed out) {
+        return engine.update(sample, out);
+    }
+
+    /** 发出一次探测并更新滑动窗口，返回本次RTT */
+    public double probeOnce() throws Exception {
+        double rtt = probeSource.probe();
+        qualityWindow.add(rtt);
+        return rtt;
+    }
+
+    public NetworkStatsEngine.Sample getSample() {
+        return sample;
+    }
+
+    public NetworkQualityWindow getQualityWindow() {
+        return qualityWindow;
+    }
+
+    /** 清除速率基准和质量窗口 */
+    public void reset() {
+        engine.reset();
+        qualityWindow.clear();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.networkmonitor;
+
+/**
+ * 最近若干次探测结果的滑动窗口，计算平均RTT和丢包率。
+ * 使用定长环形数组，不装箱，可在探测线程和统计线程之间共享。
+ */
+public class NetworkQualityWindow {
+    private final double[] rtts;
+    private final boolean[] losses;
+    private int next = 0;
+    private int size = 0;
+    private double packetLossRate = 0.0;
+    private double averageRtt = 0.0;
+
+    public NetworkQualityWindow(int windowSize) {
+        rtts = new double[windowSize];
+        losses = new boolean[windowSize];
+    }
+
+    /**
+     * 加入一次探测结果。
+     * @param rtt 往返时延（毫秒），丢包时传{@link ProbeSource#LOST}
+     */
+    public synchronized void add(double rtt) {
+        boolean lost = rtt < 0;
+        rtts[next] = lost ? 0.0 : rtt;
+        losses[next] = lost;
+        next = (next + 1) % rtts.length;
+        if (size < rtts.length) {
+            size++;
+        }
+
+        // 计算平均RTT，丢包的探测不计入
+        double totalRtt = 0.0;
+        int validRttCount = 0;
+        int lostCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (rtts[i] > 0) {
+                totalRtt += rtts[i];
+                validRttCount++;
+            }
+            if (losses[i]) {
+                lostCount++;
+            }
+        }
+        averageRtt = validRttCount > 0 ? totalRtt / validRttCount : 0.0;
+        packetLossRate = (lostCount * 100.0) / size;
+    }
+
+    /** 丢包率，百分比 */
+    public synchronized double getPacketLossRate() {
+        return packetLossRate;
+    }
+
+    /** 平均RTT，毫秒 */
+    public synchronized double getAverageRtt() {
+        return averageRtt;
+    }
+
+    public synchronized void clear() {
+        next = 0;
+        size = 0;
+        packetLossRate = 0.0;
+        averageRtt = 0.0;
+    }
+}
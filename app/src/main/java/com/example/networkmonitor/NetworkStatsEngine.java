@@ -0,0 +1,82 @@
+package com.example.networkmonitor;
+
+/**
+ * 根据相邻两次计数器采样计算WiFi和蜂窝的上下行速率。
+ * 纯Java实现，实时监控和轨迹回放共用同一套计算逻辑。
+ */
+public class NetworkStatsEngine {
+    private static final double MOBILE_SPEED_THRESHOLD = 50.0; // 蜂窝流量阈值，单位KB/s
+
+    private long lastWifiRx = 0;
+    private long lastWifiTx = 0;
+    private long lastMobileRx = 0;
+    private long lastMobileTx = 0;
+    private long lastQueryTime = 0;
+    private boolean hasBaseline = false;
+
+    /** 一次计数器采样，字段均为累计值 */
+    public static class Sample {
+        public long timeMillis;
+        public long totalRxBytes;
+        public long totalTxBytes;
+        public long mobileRxBytes;
+        public long mobileTxBytes;
+        public int networkType = ConnectivitySource.NETWORK_NONE;
+    }
+
+    /** 计算结果，速率单位为字节/秒 */
+    public static class Speed {
+        public double wifiRxSpeed;
+        public double wifiTxSpeed;
+        public double mobileRxSpeed;
+        public double mobileTxSpeed;
+        public long intervalMillis;
+        public int networkType;
+
+        /** 蜂窝上下行之和，单位KB/s */
+        public double getTotalMobileSpeedKb() {
+            return (mobileRxSpeed + mobileTxSpeed) / 1024.0;
+        }
+
+        public boolean isMobileOverThreshold() {
+            return getTotalMobileSpeedKb() > MOBILE_SPEED_THRESHOLD;
+        }
+    }
+
+    /** 清除基准数据，下一次采样只作为基准 */
+    public void reset() {
+        hasBaseline = false;
+    }
+
+    /**
+     * 用新采样更新基准，并计算与上一次采样之间的速率。
+     * @return 首次采样或时间未前进时返回false，此时out未被修改
+     */
+    public boolean update(Sample sample, Speed out) {
+        // WiFi流量 = 总流量 - 移动数据流量
+        long wifiRxBytes = sample.totalRxBytes - sample.mobileRxBytes;
+        long wifiTxBytes = sample.totalTxBytes - sample.mobileTxBytes;
+
+        boolean computed = false;
+        if (hasBaseline) {
+            long timeDiff = sample.timeMillis - lastQueryTime;
+            if (timeDiff > 0) {
+                out.wifiRxSpeed = ((wifiRxBytes - lastWifiRx) * 1000.0) / timeDiff;
+                out.wifiTxSpeed = ((wifiTxBytes - lastWifiTx) * 1000.0) / timeDiff;
+                out.mobileRxSpeed = ((sample.mobileRxBytes - lastMobileRx) * 1000.0) / timeDiff;
+                out.mobileTxSpeed = ((sample.mobileTxBytes - lastMobileTx) * 1000.0) / timeDiff;
+                out.intervalMillis = timeDiff;
+                out.networkType = sample.networkType;
+                computed = true;
+            }
+        }
+
+        lastWifiRx = wifiRxBytes;
+        lastWifiTx = wifiTxBytes;
+        lastMobileRx = sample.mobileRxBytes;
+        lastMobileTx = sample.mobileTxBytes;
+        lastQueryTime = sample.timeMillis;
+        hasBaseline = true;
+        return computed;
+    }
+}
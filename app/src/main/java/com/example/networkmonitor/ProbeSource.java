@@ -0,0 +1,14 @@
+package com.example.networkmonitor;
+
+/**
+ * 网络质量探测数据源，每次调用发出一次探测。
+ */
+public interface ProbeSource {
+    /** 丢包时的返回值 */
+    double LOST = -1.0;
+
+    /**
+     * @return 往返时延（毫秒），丢包返回{@link #LOST}
+     */
+    double probe() throws Exception;
+}
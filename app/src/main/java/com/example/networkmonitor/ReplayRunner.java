@@ -0,0 +1,74 @@
+package com.example.networkmonitor;
+
+/**
+ * 以最快速度把回放轨迹送过完整的监控流水线，用于确定性测试和吞吐量基准。
+ */
+public class ReplayRunner {
+
+    /** 每计算出一次速率时回调，参数对象会被复用，不要持有 */
+    public interface Listener {
+        void onSpeed(NetworkStatsEngine.Sample sample, NetworkStatsEngine.Speed speed,
+                     double averageRtt, double packetLossRate);
+    }
+
+    /** 一次回放的结果 */
+    public static class Result {
+        public long samples;
+        public long speedsComputed;
+        public long mobileOverThreshold;
+        public double totalWifiBytes;
+        public double totalMobileBytes;
+        public long elapsedNanos;
+
+        public double getSamplesPerSecond() {
+            return elapsedNanos > 0 ? samples * 1e9 / elapsedNanos : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("回放 %d 条样本，计算 %d 次速率，耗时 %.1fms，%.0f 样本/秒",
+                    samples, speedsComputed, elapsedNanos / 1e6, getSamplesPerSecond());
+        }
+    }
+
+    private final TraceReplaySource source;
+    private final int windowSize;
+
+    public ReplayRunner(TraceReplaySource source, int windowSize) {
+        this.source = source;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * 从头回放整条轨迹。
+     * @param listener 可为null，此时只统计结果
+     */
+    public Result run(Listener listener) throws Exception {
+        source.rewind();
+        MonitorPipeline pipeline = new MonitorPipeline(source, source, source, windowSize);
+        NetworkQualityWindow qualityWindow = pipeline.getQualityWindow();
+        NetworkStatsEngine.Speed speed = new NetworkStatsEngine.Speed();
+        Result result = new Result();
+
+        long start = System.nanoTime();
+        while (pipeline.readSample()) {
+            result.samples++;
+            pipeline.probeOnce();
+            if (pipeline.computeSpeed(speed)) {
+                result.speedsComputed++;
+                double seconds = speed.intervalMillis / 1000.0;
+                result.totalWifiBytes += (speed.wifiRxSpeed + speed.wifiTxSpeed) * seconds;
+                result.totalMobileBytes += (speed.mobileRxSpeed + speed.mobileTxSpeed) * seconds;
+                if (speed.isMobileOverThreshold()) {
+                    result.mobileOverThreshold++;
+                }
+                if (listener != null) {
+                    listener.onSpeed(pipeline.getSample(), speed,
+                            qualityWindow.getAverageRtt(), qualityWindow.getPacketLossRate());
+                }
+            }
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.networkmonitor;
+
+/**
+ * 低功耗模式下的内存样本缓冲，每条记录是一个采样区间内的流量增量。
+ * 按列存放在定长基本类型数组中，写满后由调用方批量写入历史记录并清空。
+ */
+public class SampleBuffer {
+    final long[] startTimes;
+    final long[] endTimes;
+    final int[] networkTypes;
+    final long[] wifiRx;
+    final long[] wifiTx;
+    final long[] mobileRx;
+    final long[] mobileTx;
+    final double[] rtts;
+    private int size = 0;
+
+    public SampleBuffer(int capacity) {
+        startTimes = new long[capacity];
+        endTimes = new long[capacity];
+        networkTypes = new int[capacity];
+        wifiRx = new long[capacity];
+        wifiTx = new long[capacity];
+        mobileRx = new long[capacity];
+        mobileTx = new long[capacity];
+        rtts = new double[capacity];
+    }
+
+    /** @return 缓冲已满时返回false，记录被丢弃 */
+    public boolean add(long startTime, long endTime, int networkType,
+                       long wifiRxBytes, long wifiTxBytes, long mobileRxBytes, long mobileTxBytes, double rtt) {
+        if (isFull()) {
+            return false;
+        }
+        startTimes[size] = startTime;
+        endTimes[size] = endTime;
+        networkTypes[size] = networkType;
+        wifiRx[size] = wifiRxBytes;
+        wifiTx[size] = wifiTxBytes;
+        mobileRx[size] = mobileRxBytes;
+        mobileTx[size] = mobileTxBytes;
+        rtts[size] = rtt;
+        size++;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == startTimes.length;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.networkmonitor;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * 包装实时数据源，把每次采样按{@link TraceReplaySource#fromCsv}的格式追加到轨迹中，
+ * 录下的轨迹可直接用{@link TraceReplaySource}回放。
+ * 未开始录制时只转发调用。每条记录的rtt取写入时最近一次探测的结果，尚无探测时记为丢包。
+ */
+public class TraceRecorder implements CounterSource, ConnectivitySource, ProbeSource {
+    static final String HEADER = "# timeMillis,totalRx,totalTx,mobileRx,mobileTx,networkType,rttMs";
+
+    private final CounterSource counterSource;
+    private final ConnectivitySource connectivitySource;
+    private final ProbeSource probeSource;
+    private final StringBuilder line = new StringBuilder(96);
+
+    private Writer writer;
+    private int recordCount = 0;
+    // readCounters时读取并缓存，保证返回给流水线的网络类型与写入轨迹的一致
+    private volatile int networkType = NETWORK_NONE;
+    // 探测在另一线程进行
+    private volatile double lastRtt = LOST;
+
+    public TraceRecorder(CounterSource counterSource, ConnectivitySource connectivitySource,
+                         ProbeSource probeSource) {
+        this.counterSource = counterSource;
+        this.connectivitySource = connectivitySource;
+        this.probeSource = probeSource;
+    }
+
+    /** 开始向writer录制，已在录制时先结束上一段 */
+    public synchronized void start(Writer writer) throws IOException {
+        stop();
+        writer.write(HEADER);
+        writer.write('\n');
+        writer.flush();
+        this.writer = writer;
+        recordCount = 0;
+    }
+
+    /**
+     * 结束录制并关闭writer。
+     * @return 本段录制的记录条数
+     */
+    public synchronized int stop() throws IOException {
+        int count = recordCount;
+        if (writer != null) {
+            Writer closing = writer;
+            writer = null;
+            recordCount = 0;
+            closing.close();
+        }
+        return count;
+    }
+
+    public synchronized boolean isRecording() {
+        return writer != null;
+    }
+
+    @Override
+    public boolean readCounters(NetworkStatsEngine.Sample sample) {
+        if (!counterSource.readCounters(sample)) {
+            return false;
+        }
+        networkType = connectivitySource.getNetworkType();
+        write(sample);
+        return true;
+    }
+
+    @Override
+    public int getNetworkType() {
+        return networkType;
+    }
+
+    @Override
+    public double probe() throws Exception {
+        double rtt = probeSource.probe();
+        lastRtt = rtt;
+        return rtt;
+    }
+
+    private synchronized void write(NetworkStatsEngine.Sample sample) {
+        if (writer == null) {
+            return;
+        }
+        line.setLength(0);
+        line.append(sample.timeMillis).append(',')
+                .append(sample.totalRxBytes).append(',')
+                .append(sample.totalTxBytes).append(',')
+                .append(sample.mobileRxBytes).append(',')
+                .append(sample.mobileTxBytes).append(',')
+                .append(networkType).append(',')
+                .append(lastRtt).append('\n');
+        try {
+            writer.append(line);
+            // 每条记录都刷新，进程被杀死时轨迹仍然完整
+            writer.flush();
+            recordCount++;
+        } catch (IOException e) {
+            // 写入失败时停止录制，不影响监控本身
+            System.out.println("ERROR: 写入轨迹失败 - " + e.getMessage());
+            try {
+                stop();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.networkmonitor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 从录制或合成的轨迹回放计数器、网络类型和探测结果，不依赖设备。
+ * 轨迹按列存放在基本类型数组中，回放时不产生分配，时间取自轨迹本身，因此可远快于实时运行。
+ * 每一步先调用{@link #readCounters}前进到下一条记录，{@link #getNetworkType}和{@link #probe}返回当前记录的值。
+ */
+public class TraceReplaySource implements CounterSource, ConnectivitySource, ProbeSource {
+    private long[] times;
+    private long[] totalRx;
+    private long[] totalTx;
+    private long[] mobileRx;
+    private long[] mobileTx;
+    private int[] networkTypes;
+    private double[] rtts;
+    private int size = 0;
+    private int cursor = -1;
+
+    public TraceReplaySource(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        times = new long[capacity];
+        totalRx = new long[capacity];
+        totalTx = new long[capacity];
+        mobileRx = new long[capacity];
+        mobileTx = new long[capacity];
+        networkTypes = new int[capacity];
+        rtts = new double[capacity];
+    }
+
+    /** 追加一条记录，计数器为累计值，rtt丢包时传{@link ProbeSource#LOST} */
+    public void add(long timeMillis, long totalRxBytes, long totalTxBytes,
+                    long mobileRxBytes, long mobileTxBytes, int networkType, double rtt) {
+        if (size == times.length) {
+            int capacity = size * 2;
+            times = Arrays.copyOf(times, capacity);
+            totalRx = Arrays.copyOf(totalRx, capacity);
+            totalTx = Arrays.copyOf(totalTx, capacity);
+            mobileRx = Arrays.copyOf(mobileRx, capacity);
+            mobileTx = Arrays.copyOf(mobileTx, capacity);
+            networkTypes = Arrays.copyOf(networkTypes, capacity);
+            rtts = Arrays.copyOf(rtts, capacity);
+        }
+        times[size] = timeMillis;
+        totalRx[size] = totalRxBytes;
+        totalTx[size] = totalTxBytes;
+        mobileRx[size] = mobileRxBytes;
+        mobileTx[size] = mobileTxBytes;
+        networkTypes[size] = networkType;
+        rtts[size] = rtt;
+        size++;
+    }
+
+    /**
+     * 读取CSV轨迹，每行格式：
+     * timeMillis,totalRx,totalTx,mobileRx,mobileTx,networkType,rttMs
+     * 空行和以#开头的行被忽略。
+     */
+    public static TraceReplaySource fromCsv(Reader in) throws IOException {
+        TraceReplaySource source = new TraceReplaySource(1024);
+        BufferedReader reader = new BufferedReader(in);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            if (fields.length != 7) {
+                throw new IOException("轨迹第" + lineNumber + "行格式错误: " + line);
+            }
+            try {
+                source.add(Long.parseLong(fields[0].trim()),
+                        Long.parseLong(fields[1].trim()),
+                        Long.parseLong(fields[2].trim()),
+                        Long.parseLong(fields[3].trim()),
+                        Long.parseLong(fields[4].trim()),
+                        Integer.parseInt(fields[5].trim()),
+                        Double.parseDouble(fields[6].trim()));
+            } catch (NumberFormatException e) {
+                throw new IOException("轨迹第" + lineNumber + "行格式错误: " + line, e);
+            }
+        }
+        return source;
+    }
+
+    /**
+     * 生成合成轨迹：随机流量、偶尔切换WiFi/蜂窝、带少量丢包的RTT。
+     * 相同的seed生成相同的轨迹。
+     */
+    public static TraceReplaySource synthetic(int count, long intervalMillis, long seed) {
+        TraceReplaySource source = new TraceReplaySource(count);
+        Random random = new Random(seed);
+        long time = 1_000_000L;
+        long rx = 0;
+        long tx = 0;
+        long mRx = 0;
+        long mTx = 0;
+        int networkType = NETWORK_WIFI;
+        for (int i = 0; i < count; i++) {
+            if (random.nextInt(600) == 0) {
+                networkType = networkType == NETWORK_WIFI ? NETWORK_MOBILE : NETWORK_WIFI;
+            }
+            long rxDelta = random.nextInt(200 * 1024);
+            long txDelta = random.nextInt(20 * 1024);
+            rx += rxDelta;
+            tx += txDelta;
+            if (networkType == NETWORK_MOBILE) {
+                mRx += rxDelta;
+                mTx += txDelta;
+            }
+            double rtt = random.nextInt(50) == 0 ? LOST : 20.0 + random.nextDouble() * 80.0;
+            source.add(time, rx, tx, mRx, mTx, networkType, rtt);
+            time += intervalMillis;
+        }
+        return source;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** 回到轨迹开头 */
+    public void rewind() {
+        cursor = -1;
+    }
+
+    @Override
+    public boolean readCounters(NetworkStatsEngine.Sample sample) {
+        if (cursor + 1 >= size) {
+            return false;
+        }
+        cursor++;
+        sample.timeMillis = times[cursor];
+        sample.totalRxBytes = totalRx[cursor];
+        sample.totalTxBytes = totalTx[cursor];
+        sample.mobileRxBytes = mobileRx[cursor];
+        sample.mobileTxBytes = mobileTx[cursor];
+        return true;
+    }
+
+    @Override
+    public int getNetworkType() {
+        return cursor >= 0 ? networkTypes[cursor] : NETWORK_NONE;
+    }
+
+    @Override
+    public double probe() {
+        return cursor >= 0 ? rtts[cursor] : LOST;
+    }
+}
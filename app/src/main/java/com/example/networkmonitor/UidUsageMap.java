@@ -0,0 +1,98 @@
+package com.example.networkmonitor;
+
+import java.util.Arrays;
+
+/**
+ * UID到累计收发字节数的映射，开放寻址实现，键和值都是基本类型，不装箱。
+ * 非线程安全，构建完成后只读使用。
+ */
+public class UidUsageMap {
+    private static final int EMPTY = Integer.MIN_VALUE; // 不会出现的UID
+
+    private int[] uids;
+    private long[] rxBytes;
+    private long[] txBytes;
+    private int size = 0;
+
+    public UidUsageMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        uids = new int[capacity];
+        Arrays.fill(uids, EMPTY);
+        rxBytes = new long[capacity];
+        txBytes = new long[capacity];
+    }
+
+    private int slot(int uid) {
+        int mask = uids.length - 1;
+        int hash = uid * 0x9E3779B9;
+        int index = (hash ^ (hash >>> 16)) & mask;
+        while (uids[index] != EMPTY && uids[index] != uid) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /** 累加某个UID的收发字节数 */
+    public void add(int uid, long rx, long tx) {
+        int index = slot(uid);
+        if (uids[index] == EMPTY) {
+            uids[index] = uid;
+            size++;
+            if (size * 2 > uids.length) {
+                rehash();
+                index = slot(uid);
+            }
+        }
+        rxBytes[index] += rx;
+        txBytes[index] += tx;
+    }
+
+    private void rehash() {
+        int[] oldUids = uids;
+        long[] oldRx = rxBytes;
+        long[] oldTx = txBytes;
+        allocate(oldUids.length * 2);
+        for (int i = 0; i < oldUids.length; i++) {
+            if (oldUids[i] != EMPTY) {
+                int index = slot(oldUids[i]);
+                uids[index] = oldUids[i];
+                rxBytes[index] = oldRx[i];
+                txBytes[index] = oldTx[i];
+            }
+        }
+    }
+
+    public long getRxBytes(int uid) {
+        int index = slot(uid);
+        return uids[index] == uid ? rxBytes[index] : 0;
+    }
+
+    public long getTxBytes(int uid) {
+        int index = slot(uid);
+        return uids[index] == uid ? txBytes[index] : 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** 遍历所有UID，顺序不固定 */
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < uids.length; i++) {
+            if (uids[i] != EMPTY) {
+                visitor.visit(uids[i], rxBytes[i], txBytes[i]);
+            }
+        }
+    }
+
+    public interface Visitor {
+        void visit(int uid, long rxBytes, long txBytes);
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.networkmonitor;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * 低功耗模式的历史记录，保存在应用私有目录下的CSV文件中：
+ * intervals.csv 追加每个采样区间的流量增量；apps-yyyyMMdd.csv 保存当天各UID的累计流量，每次刷新时整体重写；
+ * pending.csv 是尚未写入intervals.csv的区间，每条记录产生时立即追加，进程被杀后用来恢复内存缓冲。
+ * 刷新时先追加intervals.csv再删除pending.csv，两步之间被杀时，恢复会跳过已写入intervals.csv的区间。
+ */
+public class UsageHistoryStore {
+    private static final String INTERVALS_FILE = "intervals.csv";
+    private static final String INTERVALS_HEADER = "start,end,networkType,wifiRx,wifiTx,mobileRx,mobileTx,rttMs";
+    private static final String PENDING_FILE = "pending.csv";
+    private static final int TAIL_BYTES = 4096; // 查找最后一条区间时读取的文件末尾长度
+
+    private final File dir;
+
+    public UsageHistoryStore(File dir) {
+        this.dir = dir;
+    }
+
+    private void ensureDir() throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("无法创建目录: " + dir);
+        }
+    }
+
+    private static String formatRow(SampleBuffer buffer, int i) {
+        return String.format(Locale.US, "%d,%d,%d,%d,%d,%d,%d,%.1f",
+                buffer.startTimes[i], buffer.endTimes[i], buffer.networkTypes[i],
+                buffer.wifiRx[i], buffer.wifiTx[i], buffer.mobileRx[i], buffer.mobileTx[i],
+                buffer.rtts[i]);
+    }
+
+    /** 把缓冲中的区间记录一次性追加到历史文件 */
+    public void appendIntervals(SampleBuffer buffer) throws IOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        ensureDir();
+        File file = new File(dir, INTERVALS_FILE);
+        boolean writeHeader = !file.exists();
+        // 上次追加中途被杀时最后一行不完整，先换行，避免与新记录连在一起
+        boolean endsMidLine = !writeHeader && !endsWithNewline(file);
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, true))) {
+            if (writeHeader) {
+                writer.write(INTERVALS_HEADER);
+                writer.newLine();
+            } else if (endsMidLine) {
+                writer.newLine();
+            }
+            for (int i = 0; i < buffer.size(); i++) {
+                writer.write(formatRow(buffer, i));
+                writer.newLine();
+            }
+        }
+    }
+
+    /** 把缓冲中第index条记录追加到待写入文件 */
+    public void appendPending(SampleBuffer buffer, int index) throws IOException {
+        ensureDir();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(new File(dir, PENDING_FILE), true))) {
+            writer.write(formatRow(buffer, index));
+            writer.newLine();
+        }
+    }
+
+    private static boolean endsWithNewline(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long length = raf.length();
+            if (length == 0) {
+                return true;
+            }
+            raf.seek(length - 1);
+            int last = raf.read();
+            return last == '\n' || last == '\r';
+        }
+    }
+
+    /**
+     * 读取intervals.csv中最后一条完整区间的结束时间，只读取文件末尾，开销与文件大小无关。
+     * @return 没有区间记录时返回Long.MIN_VALUE
+     */
+    public long lastIntervalEnd() throws IOException {
+        File file = new File(dir, INTERVALS_FILE);
+        if (!file.exists()) {
+            return Long.MIN_VALUE;
+        }
+        byte[] tail;
+        boolean truncated;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long length = raf.length();
+            int count = (int) Math.min(length, TAIL_BYTES);
+            tail = new byte[count];
+            raf.seek(length - count);
+            raf.readFully(tail);
+            truncated = count < length;
+        }
+        String[] lines = new String(tail, StandardCharsets.UTF_8).split("\n");
+        // 从后往前找第一条能解析的行，跳过不完整的末行和表头；只读了末尾时第一行可能只有后半段
+        int first = truncated ? 1 : 0;
+        for (int i = lines.length - 1; i >= first; i--) {
+            String[] fields = lines[i].trim().split(",");
+            if (fields.length != 8) {
+                continue;
+            }
+            try {
+                Double.parseDouble(fields[7]);
+                return Long.parseLong(fields[1]);
+            } catch (NumberFormatException e) {
+                // 继续向前查找
+            }
+        }
+        return Long.MIN_VALUE;
+    }
+
+    /**
+     * 把待写入文件中的记录读回缓冲，缓冲写满后剩余记录被忽略。
+     * 进程在写入中途被杀时最后一行可能不完整，这样的行会被跳过。
+     * 结束时间不晚于intervals.csv最后一条区间的记录已在上次刷新时写入，同样跳过，
+     * 因此刷新在追加和删除pending.csv之间被打断也不会重复写入。
+     * @return 读回的记录数
+     */
+    public int loadPending(SampleBuffer buffer) throws IOException {
+        File file = new File(dir, PENDING_FILE);
+        if (!file.exists()) {
+            return 0;
+        }
+        long flushedUntil = lastIntervalEnd();
+        int loaded = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null && !buffer.isFull()) {
+                String[] fields = line.split(",");
+                if (fields.length != 8) {
+                    continue;
+                }
+                try {
+                    long end = Long.parseLong(fields[1]);
+                    if (end <= flushedUntil) {
+                        continue;
+                    }
+                    buffer.add(Long.parseLong(fields[0]), end,
+                            Integer.parseInt(fields[2]), Long.parseLong(fields[3]),
+                            Long.parseLong(fields[4]), Long.parseLong(fields[5]),
+                            Long.parseLong(fields[6]), Double.parseDouble(fields[7]));
+                    loaded++;
+                } catch (NumberFormatException e) {
+                    // 跳过不完整的行
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /** 待写入的记录已进入intervals.csv后调用 */
+    public void clearPending() throws IOException {
+        File file = new File(dir, PENDING_FILE);
+        if (file.exists() && !file.delete()) {
+            throw new IOException("无法删除: " + file);
+        }
+    }
+
+    /**
+     * 重写某一天各UID的流量汇总。
+     * @param day 形如yyyyMMdd的日期
+     */
+    public void writeDailyAppTotals(String day, UidUsageMap usage) throws IOException {
+        ensureDir();
+        File file = new File(dir, "apps-" + day + ".csv");
+        File tmp = new File(dir, file.getName() + ".tmp");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(tmp))) {
+            writer.write("uid,rx,tx");
+            writer.newLine();
+            IOException[] error = new IOException[1];
+            usage.forEach((uid, rx, tx) -> {
+                if (error[0] != null) {
+                    return;
+                }
+                try {
+                    writer.write(uid + "," + rx + "," + tx);
+                    writer.newLine();
+                } catch (IOException e) {
+                    error[0] = e;
+                }
+            });
+            if (error[0] != null) {
+                throw error[0];
+            }
+        }
+        // 先写临时文件再替换，避免进程被杀时留下不完整的文件
+        if (!tmp.renameTo(file)) {
+            throw new IOException("无法写入: " + file);
+        }
+    }
+}
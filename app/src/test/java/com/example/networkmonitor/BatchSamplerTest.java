@@ -0,0 +1,153 @@
+package com.example.networkmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class BatchSamplerTest {
+    private static final int WIFI = ConnectivitySource.NETWORK_WIFI;
+    private static final int MOBILE = ConnectivitySource.NETWORK_MOBILE;
+
+    private static BatchSampler sampler(TraceReplaySource trace, int batchSize) {
+        return new BatchSampler(trace, trace, trace, batchSize);
+    }
+
+    @Test
+    public void firstSampleOnlySetsBaseline() throws Exception {
+        TraceReplaySource trace = new TraceReplaySource(4);
+        trace.add(1000, 100, 10, 0, 0, WIFI, 20);
+        BatchSampler sampler = sampler(trace, 4);
+
+        assertFalse(sampler.sampleOnce(true));
+        assertTrue(sampler.hasBaseline());
+        assertEquals(1000, sampler.getBaseTime());
+        assertTrue(sampler.getBuffer().isEmpty());
+    }
+
+    @Test
+    public void recordsWifiAndMobileDeltas() throws Exception {
+        TraceReplaySource trace = new TraceReplaySource(4);
+        trace.add(1000, 100, 10, 40, 4, WIFI, 20);
+        trace.add(2000, 1100, 210, 340, 54, MOBILE, 35);
+        BatchSampler sampler = sampler(trace, 4);
+        sampler.sampleOnce(true);
+
+        assertTrue(sampler.sampleOnce(true));
+        SampleBuffer buffer = sampler.getBuffer();
+        assertEquals(1, buffer.size());
+        assertEquals(1000, buffer.startTimes[0]);
+        assertEquals(2000, buffer.endTimes[0]);
+        assertEquals(MOBILE, buffer.networkTypes[0]);
+        assertEquals(700, buffer.wifiRx[0]);
+        assertEquals(150, buffer.wifiTx[0]);
+        assertEquals(300, buffer.mobileRx[0]);
+        assertEquals(50, buffer.mobileTx[0]);
+        assertEquals(35, buffer.rtts[0], 0.0);
+    }
+
+    @Test
+    public void skippedProbeIsRecordedAsLost() throws Exception {
+        TraceReplaySource trace = new TraceReplaySource(4);
+        trace.add(1000, 0, 0, 0, 0, WIFI, 20);
+        trace.add(2000, 10, 0, 0, 0, WIFI, 20);
+        BatchSampler sampler = sampler(trace, 4);
+        sampler.sampleOnce(false);
+        sampler.sampleOnce(false);
+        assertEquals(ProbeSource.LOST, sampler.getBuffer().rtts[0], 0.0);
+    }
+
+    @Test
+    public void counterResetCountsTrafficSinceReboot() throws Exception {
+        TraceReplaySource trace = new TraceReplaySource(4);
+        trace.add(10_000, 500, 80, 200, 30, WIFI, 20);
+        BatchSampler sampler = sampler(trace, 4);
+        // 恢复重启前持久化的基准
+        sampler.setBaseline(1000, 90_000, 9_000, 30_000, 3_000);
+
+        assertTrue(sampler.sampleOnce(true));
+        SampleBuffer buffer = sampler.getBuffer();
+        assertEquals(1000, buffer.startTimes[0]);
+        assertEquals(300, buffer.wifiRx[0]);
+        assertEquals(50, buffer.wifiTx[0]);
+        assertEquals(200, buffer.mobileRx[0]);
+        assertEquals(30, buffer.mobileTx[0]);
+        assertEquals(500, sampler.getBaseTotalRx());
+    }
+
+    @Test
+    public void clockGoingBackwardsResetsBaselineWithoutRecording() throws Exception {
+        TraceReplaySource trace = new TraceReplaySource(4);
+        trace.add(5000, 100, 0, 0, 0, WIFI, 20);
+        trace.add(3000, 300, 0, 0, 0, WIFI, 20);
+        trace.add(4000, 700, 0, 0, 0, WIFI, 20);
+        BatchSampler sampler = sampler(trace, 4);
+        sampler.sampleOnce(true);
+
+        assertFalse(sampler.sampleOnce(true));
+        assertTrue(sampler.getBuffer().isEmpty());
+        assertEquals(3000, sampler.getBaseTime());
+        assertEquals(300, sampler.getBaseTotalRx());
+
+        assertTrue(sampler.sampleOnce(true));
+        assertEquals(3000, sampler.getBuffer().startTimes[0]);
+        assertEquals(400, sampler.getBuffer().wifiRx[0]);
+    }
+
+    @Test
+    public void fullBufferFoldsTrafficIntoNextInterval() throws Exception {
+        TraceReplaySource trace = new TraceReplaySource(8);
+        trace.add(0, 0, 0, 0, 0, WIFI, 20);
+        trace.add(1000, 100, 0, 0, 0, WIFI, 20);
+        trace.add(2000, 300, 0, 0, 0, WIFI, 20);
+        trace.add(3000, 600, 0, 0, 0, WIFI, 20);
+        trace.add(4000, 1000, 0, 0, 0, WIFI, 20);
+        BatchSampler sampler = sampler(trace, 2);
+        sampler.sampleOnce(true);
+        assertTrue(sampler.sampleOnce(true));
+        assertTrue(sampler.sampleOnce(true));
+        assertTrue(sampler.getBuffer().isFull());
+
+        // 缓冲已满，区间不记录，基准保持在2000ms
+        assertFalse(sampler.sampleOnce(true));
+        assertEquals(2000, sampler.getBaseTime());
+
+        sampler.getBuffer().clear();
+        assertTrue(sampler.sampleOnce(true));
+        SampleBuffer buffer = sampler.getBuffer();
+        assertEquals(2000, buffer.startTimes[0]);
+        assertEquals(4000, buffer.endTimes[0]);
+        assertEquals(700, buffer.wifiRx[0]);
+    }
+
+    @Test
+    public void syntheticTraceTotalsMatchCounterGrowth() throws Exception {
+        TraceReplaySource trace = TraceReplaySource.synthetic(1000, 900_000, 3);
+        BatchSampler sampler = sampler(trace, 16);
+
+        long recorded = 0;
+        long firstTotal = -1;
+        for (int i = 0; i < trace.size(); i++) {
+            sampler.sampleOnce(true);
+            if (firstTotal < 0) {
+                firstTotal = sampler.getBaseTotalRx() + sampler.getBaseTotalTx();
+            }
+            SampleBuffer buffer = sampler.getBuffer();
+            if (buffer.isFull()) {
+                recorded += sum(buffer);
+                buffer.clear();
+            }
+        }
+        recorded += sum(sampler.getBuffer());
+        assertEquals(sampler.getBaseTotalRx() + sampler.getBaseTotalTx() - firstTotal, recorded);
+    }
+
+    private static long sum(SampleBuffer buffer) {
+        long total = 0;
+        for (int i = 0; i < buffer.size(); i++) {
+            total += buffer.wifiRx[i] + buffer.wifiTx[i] + buffer.mobileRx[i] + buffer.mobileTx[i];
+        }
+        return total;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.networkmonitor;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class NetworkQualityWindowTest {
+
+    @Test
+    public void emptyWindow() {
+        NetworkQualityWindow window = new NetworkQualityWindow(4);
+        assertEquals(0.0, window.getAverageRtt(), 0.0);
+        assertEquals(0.0, window.getPacketLossRate(), 0.0);
+    }
+
+    @Test
+    public void partiallyFilledWindow() {
+        NetworkQualityWindow window = new NetworkQualityWindow(4);
+        window.add(10);
+        window.add(ProbeSource.LOST);
+        assertEquals(10.0, window.getAverageRtt(), 1e-9);
+        assertEquals(50.0, window.getPacketLossRate(), 1e-9);
+    }
+
+    @Test
+    public void oldestEntriesDropOutAfterWrap() {
+        NetworkQualityWindow window = new NetworkQualityWindow(4);
+        window.add(10);
+        window.add(20);
+        window.add(ProbeSource.LOST);
+        window.add(30);
+        window.add(40);
+        // 窗口内为 20, LOST, 30, 40
+        assertEquals(30.0, window.getAverageRtt(), 1e-9);
+        assertEquals(25.0, window.getPacketLossRate(), 1e-9);
+
+        window.add(ProbeSource.LOST);
+        window.add(ProbeSource.LOST);
+        // 窗口内为 30, 40, LOST, LOST
+        assertEquals(35.0, window.getAverageRtt(), 1e-9);
+        assertEquals(50.0, window.getPacketLossRate(), 1e-9);
+
+        window.add(ProbeSource.LOST);
+        window.add(ProbeSource.LOST);
+        assertEquals(0.0, window.getAverageRtt(), 0.0);
+        assertEquals(100.0, window.getPacketLossRate(), 1e-9);
+    }
+
+    @Test
+    public void clearResetsWindow() {
+        NetworkQualityWindow window = new NetworkQualityWindow(2);
+        window.add(ProbeSource.LOST);
+        window.add(50);
+        window.clear();
+        assertEquals(0.0, window.getPacketLossRate(), 0.0);
+        window.add(20);
+        assertEquals(20.0, window.getAverageRtt(), 1e-9);
+        assertEquals(0.0, window.getPacketLossRate(), 0.0);
+    }
+}
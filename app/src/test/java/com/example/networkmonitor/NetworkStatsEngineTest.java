@@ -0,0 +1,85 @@
+package com.example.networkmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class NetworkStatsEngineTest {
+
+    private static NetworkStatsEngine.Sample sample(long time, long totalRx, long totalTx,
+                                                    long mobileRx, long mobileTx) {
+        NetworkStatsEngine.Sample sample = new NetworkStatsEngine.Sample();
+        sample.timeMillis = time;
+        sample.totalRxBytes = totalRx;
+        sample.totalTxBytes = totalTx;
+        sample.mobileRxBytes = mobileRx;
+        sample.mobileTxBytes = mobileTx;
+        sample.networkType = ConnectivitySource.NETWORK_WIFI;
+        return sample;
+    }
+
+    @Test
+    public void firstSampleOnlySetsBaseline() {
+        NetworkStatsEngine engine = new NetworkStatsEngine();
+        NetworkStatsEngine.Speed speed = new NetworkStatsEngine.Speed();
+        speed.wifiRxSpeed = -1;
+
+        assertFalse(engine.update(sample(1000, 5000, 500, 0, 0), speed));
+        assertEquals(-1, speed.wifiRxSpeed, 0.0);
+    }
+
+    @Test
+    public void computesSpeedsAgainstPreviousSample() {
+        NetworkStatsEngine engine = new NetworkStatsEngine();
+        NetworkStatsEngine.Speed speed = new NetworkStatsEngine.Speed();
+        engine.update(sample(1000, 0, 0, 0, 0), speed);
+
+        // 2秒内：总接收6144，其中蜂窝2048；总发送3072，其中蜂窝1024
+        assertTrue(engine.update(sample(3000, 6144, 3072, 2048, 1024), speed));
+        assertEquals(2048, speed.wifiRxSpeed, 1e-9);
+        assertEquals(1024, speed.wifiTxSpeed, 1e-9);
+        assertEquals(1024, speed.mobileRxSpeed, 1e-9);
+        assertEquals(512, speed.mobileTxSpeed, 1e-9);
+        assertEquals(2000, speed.intervalMillis);
+        assertEquals(1.5, speed.getTotalMobileSpeedKb(), 1e-9);
+        assertFalse(speed.isMobileOverThreshold());
+    }
+
+    @Test
+    public void nonAdvancingTimeDoesNotComputeButMovesBaseline() {
+        NetworkStatsEngine engine = new NetworkStatsEngine();
+        NetworkStatsEngine.Speed speed = new NetworkStatsEngine.Speed();
+        engine.update(sample(5000, 0, 0, 0, 0), speed);
+        speed.wifiRxSpeed = -1;
+
+        assertFalse(engine.update(sample(5000, 1024, 0, 0, 0), speed));
+        assertFalse(engine.update(sample(4000, 2048, 0, 0, 0), speed));
+        assertEquals(-1, speed.wifiRxSpeed, 0.0);
+
+        // 基准已移到最后一次采样(4000ms, 2048B)
+        assertTrue(engine.update(sample(5000, 3072, 0, 0, 0), speed));
+        assertEquals(1024, speed.wifiRxSpeed, 1e-9);
+    }
+
+    @Test
+    public void baselineAtTimeZeroIsKept() {
+        NetworkStatsEngine engine = new NetworkStatsEngine();
+        NetworkStatsEngine.Speed speed = new NetworkStatsEngine.Speed();
+        assertFalse(engine.update(sample(0, 0, 0, 0, 0), speed));
+        assertTrue(engine.update(sample(1000, 1024, 0, 0, 0), speed));
+        assertEquals(1024, speed.wifiRxSpeed, 1e-9);
+    }
+
+    @Test
+    public void resetMakesNextSampleBaselineOnly() {
+        NetworkStatsEngine engine = new NetworkStatsEngine();
+        NetworkStatsEngine.Speed speed = new NetworkStatsEngine.Speed();
+        engine.update(sample(1000, 0, 0, 0, 0), speed);
+        engine.reset();
+        assertFalse(engine.update(sample(2000, 1024, 0, 0, 0), speed));
+        assertTrue(engine.update(sample(3000, 2048, 0, 0, 0), speed));
+        assertEquals(1024, speed.wifiRxSpeed, 1e-9);
+    }
+}
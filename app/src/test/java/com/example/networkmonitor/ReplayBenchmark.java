@@ -0,0 +1,46 @@
+package com.example.networkmonitor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.FileReader;
+import java.io.Reader;
+import org.junit.Test;
+
+/**
+ * 回放吞吐量基准。作为单元测试运行时使用较小的轨迹，只打印结果不判断速度；
+ * 直接运行main可指定样本数和轮数，例如：ReplayBenchmark 5000000 5；
+ * 第一个参数为.csv文件时回放悬浮窗录制的轨迹，例如：ReplayBenchmark trace-20240101-120000.csv 5
+ */
+public class ReplayBenchmark {
+
+    @Test
+    public void replaysSyntheticTrace() throws Exception {
+        ReplayRunner.Result result = run(TraceReplaySource.synthetic(200_000, 1000, 42), 3);
+        assertEquals(200_000, result.samples);
+    }
+
+    private static ReplayRunner.Result run(TraceReplaySource source, int rounds) throws Exception {
+        ReplayRunner runner = new ReplayRunner(source, 4);
+        ReplayRunner.Result result = null;
+        // 前几轮包含JIT预热，取最后一轮
+        for (int i = 0; i < rounds; i++) {
+            result = runner.run(null);
+            System.out.println("ReplayBenchmark 第" + (i + 1) + "轮: " + result);
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        TraceReplaySource source;
+        if (args.length > 0 && args[0].endsWith(".csv")) {
+            try (Reader in = new FileReader(args[0])) {
+                source = TraceReplaySource.fromCsv(in);
+            }
+        } else {
+            int samples = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+            source = TraceReplaySource.synthetic(samples, 1000, 42);
+        }
+        run(source, rounds);
+    }
+}
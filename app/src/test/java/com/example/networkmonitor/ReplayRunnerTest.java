@@ -0,0 +1,61 @@
+package com.example.networkmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+public class ReplayRunnerTest {
+
+    @Test
+    public void sameSeedProducesIdenticalResults() throws Exception {
+        ReplayRunner.Result first = new ReplayRunner(TraceReplaySource.synthetic(20_000, 1000, 42), 4).run(null);
+        ReplayRunner.Result second = new ReplayRunner(TraceReplaySource.synthetic(20_000, 1000, 42), 4).run(null);
+
+        assertEquals(20_000, first.samples);
+        assertEquals(19_999, first.speedsComputed);
+        assertEquals(first.samples, second.samples);
+        assertEquals(first.speedsComputed, second.speedsComputed);
+        assertEquals(first.mobileOverThreshold, second.mobileOverThreshold);
+        assertEquals(first.totalWifiBytes, second.totalWifiBytes, 0.0);
+        assertEquals(first.totalMobileBytes, second.totalMobileBytes, 0.0);
+    }
+
+    @Test
+    public void differentSeedProducesDifferentTrace() throws Exception {
+        ReplayRunner.Result first = new ReplayRunner(TraceReplaySource.synthetic(1000, 1000, 1), 4).run(null);
+        ReplayRunner.Result second = new ReplayRunner(TraceReplaySource.synthetic(1000, 1000, 2), 4).run(null);
+        assertNotEquals(first.totalWifiBytes, second.totalWifiBytes, 0.0);
+    }
+
+    @Test
+    public void rerunningSameSourceRewinds() throws Exception {
+        ReplayRunner runner = new ReplayRunner(TraceReplaySource.synthetic(500, 1000, 7), 4);
+        ReplayRunner.Result first = runner.run(null);
+        ReplayRunner.Result second = runner.run(null);
+        assertEquals(first.samples, second.samples);
+        assertEquals(first.totalWifiBytes, second.totalWifiBytes, 0.0);
+    }
+
+    @Test
+    public void totalsMatchCounterGrowth() throws Exception {
+        TraceReplaySource source = new TraceReplaySource(4);
+        source.add(0, 0, 0, 0, 0, ConnectivitySource.NETWORK_WIFI, 10);
+        source.add(1000, 4096, 1024, 0, 0, ConnectivitySource.NETWORK_WIFI, 20);
+        source.add(3000, 8192, 2048, 2048, 512, ConnectivitySource.NETWORK_MOBILE, ProbeSource.LOST);
+
+        long[] calls = new long[1];
+        double[] lastLossRate = new double[1];
+        ReplayRunner.Result result = new ReplayRunner(source, 4).run((sample, speed, rtt, loss) -> {
+            calls[0]++;
+            lastLossRate[0] = loss;
+        });
+
+        assertEquals(3, result.samples);
+        assertEquals(2, result.speedsComputed);
+        assertEquals(2, calls[0]);
+        assertEquals(8192 + 2048 - 2048 - 512, result.totalWifiBytes, 1e-6);
+        assertEquals(2048 + 512, result.totalMobileBytes, 1e-6);
+        assertEquals(100.0 / 3, lastLossRate[0], 1e-9);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.networkmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import org.junit.Test;
+
+public class TraceRecorderTest {
+
+    @Test
+    public void recordedTraceReplaysWithSameCounters() throws Exception {
+        TraceReplaySource original = TraceReplaySource.synthetic(200, 1000, 7);
+        TraceRecorder recorder = new TraceRecorder(original, original, original);
+        StringWriter out = new StringWriter();
+        recorder.start(out);
+
+        NetworkStatsEngine.Sample sample = new NetworkStatsEngine.Sample();
+        while (recorder.readCounters(sample)) {
+            assertEquals(original.getNetworkType(), recorder.getNetworkType());
+            recorder.probe();
+        }
+        assertEquals(200, recorder.stop());
+        assertFalse(recorder.isRecording());
+
+        TraceReplaySource replay = TraceReplaySource.fromCsv(new StringReader(out.toString()));
+        assertEquals(200, replay.size());
+
+        original.rewind();
+        NetworkStatsEngine.Sample expected = new NetworkStatsEngine.Sample();
+        NetworkStatsEngine.Sample actual = new NetworkStatsEngine.Sample();
+        double previousRtt = ProbeSource.LOST;
+        while (original.readCounters(expected)) {
+            assertTrue(replay.readCounters(actual));
+            assertEquals(expected.timeMillis, actual.timeMillis);
+            assertEquals(expected.totalRxBytes, actual.totalRxBytes);
+            assertEquals(expected.totalTxBytes, actual.totalTxBytes);
+            assertEquals(expected.mobileRxBytes, actual.mobileRxBytes);
+            assertEquals(expected.mobileTxBytes, actual.mobileTxBytes);
+            assertEquals(original.getNetworkType(), replay.getNetworkType());
+            // 每条记录带的是写入时最近一次探测的结果
+            assertEquals(previousRtt, replay.probe(), 0.0);
+            previousRtt = original.probe();
+        }
+        assertFalse(replay.readCounters(actual));
+    }
+
+    @Test
+    public void passesThroughWhenNotRecording() throws Exception {
+        TraceReplaySource source = new TraceReplaySource(4);
+        source.add(1000, 10, 20, 0, 0, ConnectivitySource.NETWORK_MOBILE, 30.0);
+        TraceRecorder recorder = new TraceRecorder(source, source, source);
+
+        NetworkStatsEngine.Sample sample = new NetworkStatsEngine.Sample();
+        assertTrue(recorder.readCounters(sample));
+        assertEquals(10, sample.totalRxBytes);
+        assertEquals(ConnectivitySource.NETWORK_MOBILE, recorder.getNetworkType());
+        assertEquals(30.0, recorder.probe(), 0.0);
+        assertFalse(recorder.readCounters(sample));
+        assertFalse(recorder.isRecording());
+        assertEquals(0, recorder.stop());
+    }
+
+    @Test
+    public void restartBeginsNewTrace() throws Exception {
+        TraceReplaySource source = TraceReplaySource.synthetic(5, 1000, 1);
+        TraceRecorder recorder = new TraceRecorder(source, source, source);
+        NetworkStatsEngine.Sample sample = new NetworkStatsEngine.Sample();
+
+        StringWriter first = new StringWriter();
+        recorder.start(first);
+        recorder.readCounters(sample);
+        recorder.readCounters(sample);
+
+        StringWriter second = new StringWriter();
+        recorder.start(second);
+        recorder.readCounters(sample);
+        assertEquals(1, recorder.stop());
+
+        assertEquals(2, TraceReplaySource.fromCsv(new StringReader(first.toString())).size());
+        assertEquals(1, TraceReplaySource.fromCsv(new StringReader(second.toString())).size());
+    }
+}
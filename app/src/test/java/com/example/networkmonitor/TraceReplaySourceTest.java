@@ -0,0 +1,78 @@
+package com.example.networkmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import org.junit.Test;
+
+public class TraceReplaySourceTest {
+
+    @Test
+    public void readsCsvAndSkipsCommentsAndBlankLines() throws Exception {
+        TraceReplaySource source = TraceReplaySource.fromCsv(new StringReader(
+                "# time,totalRx,totalTx,mobileRx,mobileTx,type,rtt\n"
+                        + "\n"
+                        + "1000, 10, 20, 0, 0, 1, 15.5\n"
+                        + "2000,30,40,5,6,2,-1\n"));
+        assertEquals(2, source.size());
+
+        NetworkStatsEngine.Sample sample = new NetworkStatsEngine.Sample();
+        assertTrue(source.readCounters(sample));
+        assertEquals(1000, sample.timeMillis);
+        assertEquals(10, sample.totalRxBytes);
+        assertEquals(20, sample.totalTxBytes);
+        assertEquals(ConnectivitySource.NETWORK_WIFI, source.getNetworkType());
+        assertEquals(15.5, source.probe(), 0.0);
+
+        assertTrue(source.readCounters(sample));
+        assertEquals(5, sample.mobileRxBytes);
+        assertEquals(6, sample.mobileTxBytes);
+        assertEquals(ConnectivitySource.NETWORK_MOBILE, source.getNetworkType());
+        assertEquals(ProbeSource.LOST, source.probe(), 0.0);
+
+        assertFalse(source.readCounters(sample));
+    }
+
+    @Test
+    public void rejectsWrongFieldCount() {
+        assertRejected("1000,10,20,0,0,1\n", 1);
+    }
+
+    @Test
+    public void rejectsNonNumericField() {
+        assertRejected("# header\n1000,10,20,0,0,1,5\n2000,abc,20,0,0,1,5\n", 3);
+    }
+
+    private static void assertRejected(String csv, int lineNumber) {
+        try {
+            TraceReplaySource.fromCsv(new StringReader(csv));
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("第" + lineNumber + "行"));
+        }
+    }
+
+    @Test
+    public void rewindRestartsFromFirstRecord() {
+        TraceReplaySource source = new TraceReplaySource(1);
+        for (int i = 0; i < 40; i++) {
+            source.add(i * 1000L, i, i, 0, 0, ConnectivitySource.NETWORK_WIFI, 10);
+        }
+        NetworkStatsEngine.Sample sample = new NetworkStatsEngine.Sample();
+        int count = 0;
+        while (source.readCounters(sample)) {
+            count++;
+        }
+        assertEquals(40, count);
+        assertEquals(39000, sample.timeMillis);
+
+        source.rewind();
+        assertEquals(ConnectivitySource.NETWORK_NONE, source.getNetworkType());
+        assertTrue(source.readCounters(sample));
+        assertEquals(0, sample.timeMillis);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.networkmonitor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class UidUsageMapTest {
+
+    @Test
+    public void accumulatesPerUid() {
+        UidUsageMap usage = new UidUsageMap(4);
+        usage.add(10001, 100, 10);
+        usage.add(10002, 5, 5);
+        usage.add(10001, 50, 1);
+        assertEquals(2, usage.size());
+        assertEquals(150, usage.getRxBytes(10001));
+        assertEquals(11, usage.getTxBytes(10001));
+        assertEquals(0, usage.getRxBytes(99999));
+    }
+
+    @Test
+    public void growsPastInitialCapacity() {
+        UidUsageMap usage = new UidUsageMap(1);
+        Map<Integer, long[]> expected = new HashMap<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 50_000; i++) {
+            int uid = random.nextInt(4000) - 10; // 包括UID_REMOVED等负值
+            long rx = random.nextInt(1000);
+            long tx = random.nextInt(1000);
+            usage.add(uid, rx, tx);
+            long[] totals = expected.computeIfAbsent(uid, k -> new long[2]);
+            totals[0] += rx;
+            totals[1] += tx;
+        }
+        assertEquals(expected.size(), usage.size());
+        for (Map.Entry<Integer, long[]> entry : expected.entrySet()) {
+            assertEquals(entry.getValue()[0], usage.getRxBytes(entry.getKey()));
+            assertEquals(entry.getValue()[1], usage.getTxBytes(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void forEachVisitsEveryUidOnce() {
+        UidUsageMap usage = new UidUsageMap(2);
+        for (int uid = 0; uid < 100; uid++) {
+            usage.add(uid, uid, uid * 2L);
+        }
+        Map<Integer, long[]> visited = new HashMap<>();
+        usage.forEach((uid, rx, tx) -> {
+            long[] previous = visited.put(uid, new long[]{rx, tx});
+            assertEquals("uid visited twice: " + uid, null, previous);
+        });
+        assertEquals(100, visited.size());
+        for (int uid = 0; uid < 100; uid++) {
+            assertEquals(uid, visited.get(uid)[0]);
+            assertEquals(uid * 2L, visited.get(uid)[1]);
+        }
+    }
+
+    @Test
+    public void forEachOnEmptyMapVisitsNothing() {
+        int[] calls = new int[1];
+        new UidUsageMap(8).forEach((uid, rx, tx) -> calls[0]++);
+        assertEquals(0, calls[0]);
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.networkmonitor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class UsageHistoryStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void pendingRowsSurviveAndReload() throws Exception {
+        File dir = new File(folder.getRoot(), "history");
+        UsageHistoryStore store = new UsageHistoryStore(dir);
+        SampleBuffer buffer = new SampleBuffer(8);
+        buffer.add(1000, 2000, ConnectivitySource.NETWORK_WIFI, 10, 20, 0, 0, 15.5);
+        store.appendPending(buffer, 0);
+        buffer.add(2000, 3000, ConnectivitySource.NETWORK_MOBILE, 0, 0, 30, 40, ProbeSource.LOST);
+        store.appendPending(buffer, 1);
+
+        // 模拟进程重启后的新缓冲
+        SampleBuffer restored = new SampleBuffer(8);
+        assertEquals(2, new UsageHistoryStore(dir).loadPending(restored));
+        assertEquals(2, restored.size());
+        assertArrayEquals(new long[]{1000, 2000}, slice(restored.startTimes, 2));
+        assertArrayEquals(new long[]{30, 40}, new long[]{restored.mobileRx[1], restored.mobileTx[1]});
+        assertEquals(ConnectivitySource.NETWORK_MOBILE, restored.networkTypes[1]);
+        assertEquals(15.5, restored.rtts[0], 0.0);
+    }
+
+    @Test
+    public void truncatedPendingLineIsSkipped() throws Exception {
+        File dir = folder.getRoot();
+        try (FileWriter writer = new FileWriter(new File(dir, "pending.csv"))) {
+            writer.write("1000,2000,1,10,20,0,0,15.0\n2000,3000,1,5");
+        }
+        SampleBuffer buffer = new SampleBuffer(8);
+        assertEquals(1, new UsageHistoryStore(dir).loadPending(buffer));
+        assertEquals(10, buffer.wifiRx[0]);
+    }
+
+    @Test
+    public void flushMovesPendingIntoIntervals() throws Exception {
+        File dir = folder.getRoot();
+        UsageHistoryStore store = new UsageHistoryStore(dir);
+        SampleBuffer buffer = new SampleBuffer(4);
+        buffer.add(1000, 2000, ConnectivitySource.NETWORK_WIFI, 10, 20, 0, 0, 15.0);
+        store.appendPending(buffer, 0);
+
+        store.appendIntervals(buffer);
+        store.clearPending();
+
+        assertFalse(new File(dir, "pending.csv").exists());
+        assertEquals(0, store.loadPending(new SampleBuffer(4)));
+        List<String> lines = Files.readAllLines(new File(dir, "intervals.csv").toPath(), StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertEquals("1000,2000,1,10,20,0,0,15.0", lines.get(1));
+    }
+
+    @Test
+    public void interruptedFlushDoesNotDuplicateIntervals() throws Exception {
+        File dir = folder.getRoot();
+        UsageHistoryStore store = new UsageHistoryStore(dir);
+        SampleBuffer buffer = new SampleBuffer(4);
+        buffer.add(1000, 2000, ConnectivitySource.NETWORK_WIFI, 10, 20, 0, 0, 15.0);
+        store.appendPending(buffer, 0);
+        buffer.add(2000, 3000, ConnectivitySource.NETWORK_WIFI, 30, 40, 0, 0, 16.0);
+        store.appendPending(buffer, 1);
+
+        // 追加intervals.csv后、删除pending.csv前被杀
+        store.appendIntervals(buffer);
+        SampleBuffer restored = new SampleBuffer(4);
+        assertEquals(0, new UsageHistoryStore(dir).loadPending(restored));
+
+        // 之后的新区间照常恢复
+        restored.add(3000, 4000, ConnectivitySource.NETWORK_WIFI, 50, 60, 0, 0, 17.0);
+        store.appendPending(restored, 0);
+        SampleBuffer next = new SampleBuffer(4);
+        assertEquals(1, store.loadPending(next));
+        assertEquals(4000, next.endTimes[0]);
+
+        store.appendIntervals(next);
+        store.clearPending();
+        List<String> lines = Files.readAllLines(new File(dir, "intervals.csv").toPath(), StandardCharsets.UTF_8);
+        assertEquals(4, lines.size());
+        assertEquals(4000, store.lastIntervalEnd());
+    }
+
+    @Test
+    public void lastIntervalEndSkipsTruncatedLineAndHeader() throws Exception {
+        File dir = folder.getRoot();
+        UsageHistoryStore store = new UsageHistoryStore(dir);
+        assertEquals(Long.MIN_VALUE, store.lastIntervalEnd());
+        try (FileWriter writer = new FileWriter(new File(dir, "intervals.csv"))) {
+            writer.write("start,end,networkType,wifiRx,wifiTx,mobileRx,mobileTx,rttMs\n");
+        }
+        assertEquals(Long.MIN_VALUE, store.lastIntervalEnd());
+
+        try (FileWriter writer = new FileWriter(new File(dir, "intervals.csv"), true)) {
+            writer.write("1000,2000,1,10,20,0,0,15.0\n2000,3000,1,5");
+        }
+        assertEquals(2000, store.lastIntervalEnd());
+
+        // 不完整的末行之后追加的记录另起一行
+        SampleBuffer buffer = new SampleBuffer(4);
+        buffer.add(2000, 3000, ConnectivitySource.NETWORK_WIFI, 30, 40, 0, 0, 16.0);
+        store.appendIntervals(buffer);
+        assertEquals(3000, store.lastIntervalEnd());
+        List<String> lines = Files.readAllLines(new File(dir, "intervals.csv").toPath(), StandardCharsets.UTF_8);
+        assertEquals("2000,3000,1,30,40,0,0,16.0", lines.get(lines.size() - 1));
+    }
+
+    @Test
+    public void lastIntervalEndReadsOnlyTailOfLargeFile() throws Exception {
+        UsageHistoryStore store = new UsageHistoryStore(folder.getRoot());
+        SampleBuffer buffer = new SampleBuffer(500);
+        for (int i = 0; i < 500; i++) {
+            buffer.add(i * 1000L, (i + 1) * 1000L, ConnectivitySource.NETWORK_WIFI, i, i, 0, 0, 20.0);
+        }
+        store.appendIntervals(buffer);
+        assertEquals(500_000, store.lastIntervalEnd());
+    }
+
+    @Test
+    public void loadPendingStopsWhenBufferIsFull() throws Exception {
+        UsageHistoryStore store = new UsageHistoryStore(folder.getRoot());
+        SampleBuffer buffer = new SampleBuffer(3);
+        for (int i = 0; i < 3; i++) {
+            buffer.add(i, i + 1, ConnectivitySource.NETWORK_WIFI, i, 0, 0, 0, 1.0);
+            store.appendPending(buffer, i);
+        }
+        store.appendPending(buffer, 2);
+        assertEquals(2, store.loadPending(new SampleBuffer(2)));
+    }
+
+    private static long[] slice(long[] values, int length) {
+        long[] result = new long[length];
+        System.arraycopy(values, 0, result, 0, length);
+        return result;
+    }
+}
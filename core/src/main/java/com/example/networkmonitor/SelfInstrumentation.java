@@ -0,0 +1,109 @@
+package com.example.networkmonitor;
+
+/**
+ * 监控程序自身开销的统计：各阶段耗时、唤醒次数、线程CPU时间。
+ * 纯Java实现，进程级的CPU和内存分配数据由调用方读取后传入{@link #report}。
+ */
+public class SelfInstrumentation {
+    // 唤醒来源
+    public static final int WAKEUP_TIMER = 0;   // Timer线程的统计周期
+    public static final int WAKEUP_PROBE = 1;   // ping循环
+    public static final int WAKEUP_HANDLER = 2; // 主线程handler.post
+    private static final int WAKEUP_SOURCE_COUNT = 3;
+    private static final String[] WAKEUP_NAMES = {"timer", "probe", "handler"};
+
+    public final StageTimer sample = new StageTimer("sample");
+    public final StageTimer compute = new StageTimer("compute");
+    public final StageTimer render = new StageTimer("render");
+    public final StageTimer probe = new StageTimer("probe");
+
+    private final long[] wakeups = new long[WAKEUP_SOURCE_COUNT];
+    private final long[] threadCpuNanos = new long[WAKEUP_SOURCE_COUNT];
+    private final long startNanos;
+
+    // 低开销模式只记录阶段耗时和唤醒次数，不读取线程CPU时间
+    private volatile boolean detailed = false;
+
+    public SelfInstrumentation() {
+        startNanos = System.nanoTime();
+    }
+
+    public boolean isDetailed() {
+        return detailed;
+    }
+
+    public void setDetailed(boolean detailed) {
+        this.detailed = detailed;
+    }
+
+    public synchronized void recordWakeup(int source) {
+        wakeups[source]++;
+    }
+
+    public synchronized void addThreadCpuNanos(int source, long nanos) {
+        if (nanos > 0) {
+            threadCpuNanos[source] += nanos;
+        }
+    }
+
+    public synchronized long getWakeups(int source) {
+        return wakeups[source];
+    }
+
+    public synchronized double getWakeupsPerMinute() {
+        double minutes = (System.nanoTime() - startNanos) / 60e9;
+        if (minutes <= 0) {
+            return 0.0;
+        }
+        long total = 0;
+        for (long w : wakeups) {
+            total += w;
+        }
+        return total / minutes;
+    }
+
+    /**
+     * 生成多行文本报告，调试面板和导出文件共用。
+     * 各参数须与本对象从同一时刻开始统计，否则CPU占比会偏高。
+     * @param processCpuMillis 统计开始以来的进程CPU时间，未知时传-1
+     * @param allocatedBytes 统计开始以来的分配字节数，未知时传-1
+     * @param gcCount 统计开始以来的GC次数，未知时传-1
+     */
+    public synchronized String report(long processCpuMillis, long allocatedBytes, long gcCount) {
+        long uptimeSeconds = (System.nanoTime() - startNanos) / 1_000_000_000L;
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("运行 %ds 唤醒 %.1f次/分", uptimeSeconds, getWakeupsPerMinute()));
+        for (int i = 0; i < WAKEUP_SOURCE_COUNT; i++) {
+            sb.append(' ').append(WAKEUP_NAMES[i]).append('=').append(wakeups[i]);
+        }
+        sb.append('\n');
+        // 未知的数据不显示，全部未知时省略整行
+        StringBuilder process = new StringBuilder();
+        if (processCpuMillis >= 0) {
+            double cpuPercent = uptimeSeconds > 0 ? processCpuMillis / 10.0 / uptimeSeconds : 0.0;
+            process.append(String.format("进程CPU %dms (%.2f%%)", processCpuMillis, cpuPercent));
+        }
+        if (allocatedBytes >= 0) {
+            process.append(process.length() > 0 ? " " : "")
+                    .append(String.format("分配 %.1fKB", allocatedBytes / 1024.0));
+        }
+        if (gcCount >= 0) {
+            process.append(process.length() > 0 ? " " : "").append(String.format("GC %d次", gcCount));
+        }
+        if (process.length() > 0) {
+            sb.append(process).append('\n');
+        }
+        if (detailed) {
+            sb.append("线程CPU");
+            for (int i = 0; i < WAKEUP_SOURCE_COUNT; i++) {
+                sb.append(String.format(" %s=%.1fms", WAKEUP_NAMES[i], threadCpuNanos[i] / 1e6));
+            }
+            sb.append('\n');
+        }
+        sb.append(sample.summary()).append('\n');
+        sb.append(compute.summary()).append('\n');
+        sb.append(render.summary()).append('\n');
+        sb.append(probe.summary());
+        return sb.toString();
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.networkmonitor;
+
+/**
+ * 单个处理阶段的耗时直方图（纯Java，不依赖Android）。
+ * 桶按2的幂划分微秒区间：桶i覆盖[2^(i-1), 2^i)微秒，桶0为不足1微秒。
+ * 记录只做一次数组自增和几次加法，不分配对象，可以长期开启。
+ */
+public class StageTimer {
+    static final int BUCKET_COUNT = 32;
+
+    private final String name;
+    private final long[] buckets = new long[BUCKET_COUNT];
+    private long count = 0;
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+
+    public StageTimer(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** 返回计时起点，与{@link #stop(long)}配对使用 */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public void stop(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public synchronized void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets[bucketIndex(nanos)]++;
+        count++;
+        totalNanos += nanos;
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+        }
+    }
+
+    static int bucketIndex(long nanos) {
+        long micros = nanos / 1000;
+        int index = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(index, BUCKET_COUNT - 1);
+    }
+
+    /** 桶i的上界（微秒） */
+    static long bucketUpperMicros(int index) {
+        return 1L << index;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public synchronized long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public synchronized double getMeanMicros() {
+        return count > 0 ? totalNanos / 1000.0 / count : 0.0;
+    }
+
+    /**
+     * 估算分位数（微秒），返回所在桶的上界，精度为2倍以内。
+     * @param quantile 0到1之间，例如0.99
+     */
+    public synchronized long getPercentileMicros(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(quantile * count);
+        if (target < 1) {
+            target = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets[i];
+            if (seen >= target) {
+                return Math.min(bucketUpperMicros(i), Math.max(1, maxNanos / 1000));
+            }
+        }
+        return maxNanos / 1000;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = 0;
+        }
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+
+    /** 单行摘要，用于调试面板和导出 */
+    public synchronized String summary() {
+        return String.format("%s n=%d avg=%.0fus p50=%dus p99=%dus max=%dus",
+                name, count, getMeanMicros(), getPercentileMicros(0.5),
+                getPercentileMicros(0.99), maxNanos / 1000);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.networkmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SelfInstrumentationTest {
+
+    @Test
+    public void countsWakeupsPerSource() {
+        SelfInstrumentation stats = new SelfInstrumentation();
+        stats.recordWakeup(SelfInstrumentation.WAKEUP_TIMER);
+        stats.recordWakeup(SelfInstrumentation.WAKEUP_TIMER);
+        stats.recordWakeup(SelfInstrumentation.WAKEUP_PROBE);
+        assertEquals(2, stats.getWakeups(SelfInstrumentation.WAKEUP_TIMER));
+        assertEquals(1, stats.getWakeups(SelfInstrumentation.WAKEUP_PROBE));
+        assertEquals(0, stats.getWakeups(SelfInstrumentation.WAKEUP_HANDLER));
+        assertTrue(stats.getWakeupsPerMinute() > 0);
+    }
+
+    @Test
+    public void reportWithUnknownProcessStatsOmitsProcessLine() {
+        SelfInstrumentation stats = new SelfInstrumentation();
+        stats.recordWakeup(SelfInstrumentation.WAKEUP_HANDLER);
+        String[] lines = stats.report(-1, -1, -1).split("\n");
+
+        assertEquals(5, lines.length);
+        assertTrue(lines[0], lines[0].startsWith("运行 "));
+        assertTrue(lines[0], lines[0].endsWith(" timer=0 probe=0 handler=1"));
+        assertTrue(lines[1].startsWith("sample n=0"));
+        assertTrue(lines[2].startsWith("compute n=0"));
+        assertTrue(lines[3].startsWith("render n=0"));
+        assertTrue(lines[4].startsWith("probe n=0"));
+    }
+
+    @Test
+    public void reportShowsOnlyKnownProcessStats() {
+        SelfInstrumentation stats = new SelfInstrumentation();
+        String[] lines = stats.report(-1, 2048, -1).split("\n");
+        assertEquals(6, lines.length);
+        assertEquals("分配 2.0KB", lines[1]);
+
+        lines = stats.report(120, 2048, 3).split("\n");
+        assertTrue(lines[1], lines[1].startsWith("进程CPU 120ms ("));
+        assertTrue(lines[1], lines[1].endsWith(" 分配 2.0KB GC 3次"));
+    }
+
+    @Test
+    public void threadCpuLineOnlyInDetailedMode() {
+        SelfInstrumentation stats = new SelfInstrumentation();
+        stats.addThreadCpuNanos(SelfInstrumentation.WAKEUP_PROBE, 2_500_000);
+        assertFalse(stats.report(-1, -1, -1).contains("线程CPU"));
+
+        stats.setDetailed(true);
+        String[] lines = stats.report(-1, -1, -1).split("\n");
+        assertEquals("线程CPU timer=0.0ms probe=2.5ms handler=0.0ms", lines[1]);
+    }
+}
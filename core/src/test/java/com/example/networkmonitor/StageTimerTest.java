@@ -0,0 +1,107 @@
+package com.example.networkmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class StageTimerTest {
+
+    @Test
+    public void bucketIndexSubMicrosecondGoesToFirstBucket() {
+        assertEquals(0, StageTimer.bucketIndex(0));
+        assertEquals(0, StageTimer.bucketIndex(999));
+    }
+
+    @Test
+    public void bucketIndexOneMicrosecond() {
+        assertEquals(1, StageTimer.bucketIndex(1000));
+        assertEquals(1, StageTimer.bucketIndex(1999));
+    }
+
+    @Test
+    public void bucketIndexPowersOfTwo() {
+        for (int k = 1; k < 20; k++) {
+            long micros = 1L << k;
+            assertEquals("2^" + k + "us", k + 1, StageTimer.bucketIndex(micros * 1000));
+            assertEquals("2^" + k + "-1us", k, StageTimer.bucketIndex((micros - 1) * 1000));
+        }
+    }
+
+    @Test
+    public void bucketIndexOverflowGoesToLastBucket() {
+        int last = StageTimer.BUCKET_COUNT - 1;
+        assertEquals(last, StageTimer.bucketIndex((1L << 40) * 1000));
+        assertEquals(last, StageTimer.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void emptyTimer() {
+        StageTimer timer = new StageTimer("empty");
+        assertEquals(0, timer.getCount());
+        assertEquals(0, timer.getTotalNanos());
+        assertEquals(0, timer.getMaxNanos());
+        assertEquals(0.0, timer.getMeanMicros(), 0.0);
+        assertEquals(0, timer.getPercentileMicros(0.5));
+        assertEquals(0, timer.getPercentileMicros(0.99));
+        assertEquals("empty n=0 avg=0us p50=0us p99=0us max=0us", timer.summary());
+    }
+
+    @Test
+    public void percentileIsCappedAtMax() {
+        StageTimer timer = new StageTimer("t");
+        // 3000us落在[2048, 4096)桶，上界4096应被截断为最大值
+        timer.record(3_000_000);
+        assertEquals(3000, timer.getPercentileMicros(0.5));
+        assertEquals(3000, timer.getPercentileMicros(0.99));
+    }
+
+    @Test
+    public void percentileReturnsBucketUpperBound() {
+        StageTimer timer = new StageTimer("t");
+        for (int i = 0; i < 99; i++) {
+            timer.record(10_000); // 10us，桶上界16us
+        }
+        timer.record(1_000_000); // 1000us
+        assertEquals(16, timer.getPercentileMicros(0.5));
+        assertEquals(16, timer.getPercentileMicros(0.99));
+        assertEquals(1000, timer.getPercentileMicros(1.0));
+    }
+
+    @Test
+    public void recordAccumulatesAndClampsNegative() {
+        StageTimer timer = new StageTimer("t");
+        timer.record(2000);
+        timer.record(4000);
+        timer.record(-5);
+        assertEquals(3, timer.getCount());
+        assertEquals(6000, timer.getTotalNanos());
+        assertEquals(4000, timer.getMaxNanos());
+        assertEquals(2.0, timer.getMeanMicros(), 1e-9);
+    }
+
+    @Test
+    public void startStopRecordsElapsedTime() {
+        StageTimer timer = new StageTimer("t");
+        long start = timer.start();
+        timer.stop(start);
+        assertEquals(1, timer.getCount());
+        assertTrue(timer.getTotalNanos() >= 0);
+    }
+
+    @Test
+    public void resetClearsEverything() {
+        StageTimer timer = new StageTimer("t");
+        timer.record(5_000_000);
+        timer.record(7_000);
+        timer.reset();
+        assertEquals(0, timer.getCount());
+        assertEquals(0, timer.getTotalNanos());
+        assertEquals(0, timer.getMaxNanos());
+        assertEquals(0, timer.getPercentileMicros(0.99));
+
+        timer.record(3_000);
+        assertEquals(1, timer.getCount());
+        assertEquals(3, timer.getPercentileMicros(0.5));
+    }
+}